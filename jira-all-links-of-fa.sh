@@ -1,21 +1,6 @@
 #!/usr/bin/env bash
-#set -x
 
-source setup-auth.sh
+source prepare-env.sh
 
-issueData=issueData.json
-
-function allLinksOfFA() {
-  issueId=$1
-  projectId=$2
-  for fromDefectId in $(echo "${issueId}" | sed "s/,/ /g"); do
-
-    curl "https://jira.devfactory.com/rest/api/2/issue/${fromDefectId}" --user "${AUTH}" | jq >${fromDefectId}.json
-    # get all linked issues of a FA that are "is covered by" and they are in JCLDALL project
-    allJCLDALLKeys=$(cat ${fromDefectId}.json | jq --raw-output ".fields.issuelinks | .[] | {out: .outwardIssue.key, outType: .type.outward, in: .inwardIssue.key, inType: .type.inward} | select(.outType|contains(\"cover\")) | select(.out|startswith(\"$projectId\")) | .out")
-
-    echo $(echo $allJCLDALLKeys | sed "s/ /,/g")
-  done
-}
-
-#allLinksOfFA $1 $2
\ No newline at end of file
+# exports the links of the FAs that cover issues of the given project (JCLDALL by default)
+java -jar target/jira-cli-1.0-SNAPSHOT-jar-with-dependencies.jar --action links --source "$1" --filter "type ~ cover and direction = out and project = ${2:-JCLDALL}" "${@:3}"
\ No newline at end of file
@@ -2,16 +2,20 @@
 
 source prepare-env.sh
 
-java -jar target/jira-cli-1.0-SNAPSHOT-jar-with-dependencies.jar --action clone --source "$1"
+# the link plans written by this clone (one per cloned issue, subtasks included) are the ones newer than the marker
+marker=$(mktemp)
+trap 'rm -f "$marker"' EXIT
+
+java -jar target/jira-cli-1.0-SNAPSHOT-jar-with-dependencies.jar --action clone --source "$1" "${@:2}"
 
 if [ $? -eq 0 ]; then
-    IFS=',' read -ra issuesToLink <<< "$1"
-    for issueToLink in "${issuesToLink[@]}"; do
-        script="links-for-${issueToLink}.sh"
-        if [ -f "$script" ]; then
-            source ${script}
-        fi
+    plans=""
+    for plan in $(find . -maxdepth 1 -name 'links-for-*.jsonl' -newer "$marker" | sort); do
+        plans="${plans:+${plans},}${plan#./}"
     done
+    if [ -n "$plans" ]; then
+        ./jira-apply-plan.sh "$plans"
+    fi
 else
     exit 1
 fi
\ No newline at end of file
@@ -1,10 +1,6 @@
 #!/usr/bin/env bash
-#set -x
 
-source jira-all-links-of-fa.sh
+source prepare-env.sh
 
-faId="$1"
-# get links of an FA that are linking to JCLDALL
-linksToDelete=$(allLinksOfFA "$faId" "JCLDALL")
-
-./jira-delete-link.sh "$faId" "$linksToDelete"
\ No newline at end of file
+# deletes the links of the FAs that cover issues of JCLDALL
+java -jar target/jira-cli-1.0-SNAPSHOT-jar-with-dependencies.jar --action delete-links --source "$1" --filter "type ~ cover and direction = out and project = JCLDALL" "${@:2}"
\ No newline at end of file
@@ -0,0 +1,5 @@
+#!/usr/bin/env bash
+
+source prepare-env.sh
+
+java -jar target/jira-cli-1.0-SNAPSHOT-jar-with-dependencies.jar --action export-fa --source "$1"
\ No newline at end of file
@@ -2,4 +2,4 @@
 
 source prepare-env.sh
 
-java -jar target/jira-cli-1.0-SNAPSHOT-jar-with-dependencies.jar --action unblock-issue --source "$1"
\ No newline at end of file
+java -jar target/jira-cli-1.0-SNAPSHOT-jar-with-dependencies.jar --action unblock-issue --source "$1" "${@:2}"
\ No newline at end of file
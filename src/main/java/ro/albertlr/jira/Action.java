@@ -26,16 +26,23 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import ro.albertlr.jira.action.TransitionIssue;
+import ro.albertlr.jira.action.AnalyzeE2Es;
+import ro.albertlr.jira.action.ApplyPlan;
 import ro.albertlr.jira.action.AssignTo;
 import ro.albertlr.jira.action.AutoTransitionIssue;
 import ro.albertlr.jira.action.BlockIssue;
 import ro.albertlr.jira.action.Clone;
+import ro.albertlr.jira.action.DeleteLinks;
+import ro.albertlr.jira.action.ExportFunctionalAreas;
 import ro.albertlr.jira.action.Get;
 import ro.albertlr.jira.action.GetE2EsRecursively;
 import ro.albertlr.jira.action.GetTransitions;
+import ro.albertlr.jira.action.GraphDiff;
 import ro.albertlr.jira.action.Link;
+import ro.albertlr.jira.action.Links;
 import ro.albertlr.jira.action.Move;
 import ro.albertlr.jira.action.NoOp;
+import ro.albertlr.jira.action.Search;
 import ro.albertlr.jira.action.UnblockIssue;
 
 import java.util.Arrays;
@@ -51,7 +58,14 @@ public interface Action<R> {
         GET("get", Get::new),
         GET_TRANSITIONS("get-transitions", GetTransitions::new),
         GET_E2ES("get-e2es", GetE2EsRecursively::new),
+        ANALYZE_E2ES("analyze-e2es", AnalyzeE2Es::new),
+        GRAPH_DIFF("graph-diff", GraphDiff::new),
+        EXPORT_FA("export-fa", ExportFunctionalAreas::new),
+        SEARCH("search", Search::new),
         LINK("link", Link::new),
+        DELETE_LINKS("delete-links", DeleteLinks::new),
+        LINKS("links", Links::new),
+        APPLY_PLAN("apply-plan", ApplyPlan::new),
         ADVANCE_ISSUE("advance-issue", TransitionIssue::new),
         AUTO_TRANSITION_ISSUE("auto-transition-issue", AutoTransitionIssue::new),
         BLOCK_ISSUE("block-issue", BlockIssue::new),
@@ -21,12 +21,23 @@ package ro.albertlr.jira;
 
 import com.atlassian.jira.rest.client.api.domain.Issue;
 import com.atlassian.jira.rest.client.api.domain.Transition;
+import com.google.common.collect.ImmutableSet;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.cli.CommandLine;
+import ro.albertlr.jira.action.GetE2EsWithSpilling;
 import ro.albertlr.jira.csv.Exporter;
+import ro.albertlr.jira.csv.Output;
+import ro.albertlr.jira.graph.GraphAnalysis;
+import ro.albertlr.jira.graph.GraphSnapshot;
+import ro.albertlr.jira.graph.SnapshotDiff;
+import ro.albertlr.jira.journal.Journal;
+import ro.albertlr.jira.link.LinkReplicator;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -60,8 +71,19 @@ public class CLI {
 
         String jiraSourceKey = Params.getParameter(cli, Params.SOURCE_ARG);
         final Action.Name action = Action.Name.from(Params.getParameter(cli, Params.ACTION_ARG));
+        final Output output = Params.output(cli);
+        if (jiraSourceKey == null && action != Action.Name.SEARCH && !cli.hasOption(Params.JQL_ARG)) {
+            log.error("Missing required option: {}", Params.SOURCE_ARG);
+            Params.printUsage();
+        }
 
         try (final Jira jira = Jira.getInstance();) {
+            if (cli.hasOption(Params.RESUME_ARG)) {
+                jira.useJournal(Journal.open(new File(Params.getParameter(cli, Params.RESUME_ARG)), true));
+            } else if (cli.hasOption(Params.JOURNAL_ARG)) {
+                jira.useJournal(Journal.open(new File(Params.getParameter(cli, Params.JOURNAL_ARG)), false));
+            }
+
             switch (action) {
                 case GET: {
                     Issue issue = action.execute(jira, jiraSourceKey);
@@ -73,10 +95,51 @@ public class CLI {
                     final String jiraTargetKey = Params.getParameter(cli, Params.TARGET_ARG);
                     final String linkType = Params.getParameter(cli, Params.LINK_TYPE_ARG);
 
-                    action.execute(jira, jiraSourceKey, jiraTargetKey, linkType);
+                    LinkReplicator.Result linked = action.execute(jira, jiraSourceKey, jiraTargetKey, linkType);
+
+                    log.info("Linked {} to {} as {}: {} created, {} already there, {} failed", jiraSourceKey,
+                            jiraTargetKey, linkType, linked.getCreated(), linked.getSkipped(), linked.getFailed());
+                }
+                break;
+                case LINKS: {
+                    final String filter = Params.getParameter(cli, Params.FILTER_ARG);
+                    final String jql = Params.getParameter(cli, Params.JQL_ARG);
+
+                    long exported = action.execute(jira, output.toParams(jiraSourceKey, filter, jql));
+                    log.info("Exported {} links", exported);
+                    System.out.printf("done%n");
+                }
+                break;
+                case DELETE_LINKS: {
+                    final String jiraTargetKey = Params.getParameter(cli, Params.TARGET_ARG);
+                    final String filter = Params.getParameter(cli, Params.FILTER_ARG);
+                    int deleted = action.execute(jira, jiraSourceKey, jiraTargetKey, filter);
+
+                    log.info("Deleted {} links of {}", deleted, jiraSourceKey);
+                }
+                break;
+                case APPLY_PLAN: {
+                    long applied = action.execute(jira, jiraSourceKey);
+
+                    log.info("Applied {} link plan entries: {}", applied, jira.linkReplicator().summary());
                 }
                 break;
                 case GET_E2ES: {
+                    if (cli.hasOption(Params.SPILL_DIR_ARG) && cli.hasOption(Params.SNAPSHOT_ARG)) {
+                        log.error("Option {} cannot be used with {}: a snapshot needs the whole graph in memory",
+                                Params.SNAPSHOT_ARG, Params.SPILL_DIR_ARG);
+                        Params.printUsage();
+                    }
+                    if (cli.hasOption(Params.SPILL_DIR_ARG)) {
+                        String spillDir = Params.getParameter(cli, Params.SPILL_DIR_ARG);
+                        // the spilling lookup is a mode of get-e2es, not an action of its own
+                        long processed = new GetE2EsWithSpilling().execute(jira, output.toParams(jiraSourceKey, spillDir));
+
+                        log.info("E2Es for {} exported from {} issues", jiraSourceKey, processed);
+                        System.out.printf("done%n");
+                        break;
+                    }
+
                     boolean recursive = cli.hasOption("recursive");
 
                     Map<String, Set<Issue>> e2ea = action.execute(jira, jiraSourceKey, String.valueOf(recursive));
@@ -101,7 +164,65 @@ public class CLI {
 //                        );
                     }
 
-                    Exporter.exportToCsv(jira, e2ea);
+                    if (cli.hasOption(Params.SNAPSHOT_ARG)) {
+                        File snapshotFile = new File(Params.getParameter(cli, Params.SNAPSHOT_ARG));
+                        GraphSnapshot.of(e2ea, keys -> statusesOf(jira, keys))
+                                .write(snapshotFile);
+                        log.info("Saved depends-on graph snapshot to {}", snapshotFile);
+                    }
+
+                    Exporter.exportToCsv(jira, e2ea, output);
+                    System.out.printf("done%n");
+                }
+                break;
+                case ANALYZE_E2ES: {
+                    GraphAnalysis analysis = action.execute(jira, jiraSourceKey);
+
+                    List<List<String>> cycles = analysis.cycles();
+                    log.info("Found {} cycles in the depends-on graph of {}", cycles.size(), jiraSourceKey);
+                    for (List<String> cycle : cycles) {
+                        log.info("    cycle [{}]", String.join(",", cycle));
+                    }
+
+                    log.info("Execution order for {}", jiraSourceKey);
+                    int step = 1;
+                    for (List<String> group : analysis.executionOrder()) {
+                        log.info("    {}. {}", step++, String.join(",", group));
+                    }
+                }
+                break;
+                case GRAPH_DIFF: {
+                    final String afterSnapshot = Params.getParameter(cli, Params.TARGET_ARG);
+                    SnapshotDiff diff = action.execute(jira, jiraSourceKey, afterSnapshot);
+
+                    log.info("Changes from {} to {}", jiraSourceKey, afterSnapshot);
+                    diff.getAddedIssues().forEach(key -> log.info("    + {}", key));
+                    diff.getRemovedIssues().forEach(key -> log.info("    - {}", key));
+                    diff.getStatusChanges().forEach(change ->
+                            log.info("    ~ {}: {} -> {}", change.getKey(), change.getBefore(), change.getAfter()));
+                    diff.getAddedLinks().forEach(link -> log.info("    + {} depends on {}", link.getFrom(), link.getTo()));
+                    diff.getRemovedLinks().forEach(link -> log.info("    - {} depends on {}", link.getFrom(), link.getTo()));
+                    if (diff.isEmpty()) {
+                        log.info("    no changes");
+                    }
+                }
+                break;
+                case EXPORT_FA: {
+                    action.execute(jira, output.toParams(jiraSourceKey));
+                    System.out.printf("done%n");
+                }
+                break;
+                case SEARCH: {
+                    final String jql = Params.getParameter(cli, Params.JQL_ARG);
+                    final String fields = Params.getParameter(cli, Params.FIELDS_ARG);
+                    final String checkpoint = Params.getParameter(cli, Params.CHECKPOINT_ARG);
+                    if (jql == null) {
+                        log.error("Missing required option: {}", Params.JQL_ARG);
+                        Params.printUsage();
+                    }
+
+                    long exported = action.execute(jira, output.toParams(jql, fields, checkpoint));
+                    log.info("Exported {} issues", exported);
                     System.out.printf("done%n");
                 }
                 break;
@@ -123,50 +244,54 @@ public class CLI {
                     if (cli.hasOption("assign-to")) {
                         whoami = Optional.ofNullable(cli.getOptionValue("assign-to"))
                                 .orElse("");
-                        action.execute(jira, jiraSourceKey, whoami);
-                    } else {
-                        action.execute(jira, jiraSourceKey);
                     }
+                    final String jql = Params.getParameter(cli, Params.JQL_ARG);
+                    int assigned = action.execute(jira, jiraSourceKey, whoami, jql);
 
-                    log.info("Successfully assigned {} to {}", jiraSourceKey, whoami);
+                    log.info("Successfully assigned {} issues to {}", assigned, whoami);
+                }
+                break;
+                case ADVANCE_ISSUE: {
+                    final String jql = Params.getParameter(cli, Params.JQL_ARG);
+                    action.execute(jira, jiraSourceKey, "TERMINAL", jql);
                 }
                 break;
-                case ADVANCE_ISSUE:
                 case BLOCK_ISSUE:
                 case UNBLOCK_ISSUE: {
-                    action.execute(jira, jiraSourceKey);
+                    final String jql = Params.getParameter(cli, Params.JQL_ARG);
+                    action.execute(jira, jiraSourceKey, jql);
                 }
                 break;
                 case AUTO_TRANSITION_ISSUE: {
                     String transitionPhase = cli.getOptionValue("transition-phase");
-                    action.execute(jira, jiraSourceKey, transitionPhase);
+                    final String jql = Params.getParameter(cli, Params.JQL_ARG);
+                    action.execute(jira, jiraSourceKey, transitionPhase, jql);
                 }
                 break;
                 case CLONE: {
-                    Iterable<String> sourceKeys = split(jiraSourceKey);
-                    for (String sourceKey : sourceKeys) {
-                        try {
-                            String cloneKey = action.execute(jira, sourceKey);
-
-                            log.info("Cloned {} to {}", sourceKey, cloneKey);
-                        } catch (Exception exception) {
-                            log.error("Could not clone {}", sourceKey, exception);
+                    Map<String, String> clones = action.execute(jira, jiraSourceKey);
+
+                    for (String sourceKey : split(jiraSourceKey)) {
+                        if (clones.containsKey(sourceKey)) {
+                            log.info("Cloned {} to {}", sourceKey, clones.get(sourceKey));
+                        } else {
+                            log.error("Could not clone {}", sourceKey);
                         }
                     }
                 }
                 break;
                 case MOVE: {
                     String destProjectKey = Params.getParameter(cli, Params.PROJECT_ARG, "JVCLD");
-                    Iterable<String> sourceKeys = split(jiraSourceKey);
-
-                    for (String sourceKey : sourceKeys) {
-                        try {
-                            String cloneKey = action.execute(jira, sourceKey, destProjectKey);
-                            log.info("Moved {} to {}", jiraSourceKey, cloneKey);
-                        } catch (Exception e) {
-                            log.error("Could not clone {}", sourceKey, e);
+                    Map<String, String> moved = action.execute(jira, jiraSourceKey, destProjectKey);
+
+                    for (String sourceKey : split(jiraSourceKey)) {
+                        if (moved.containsKey(sourceKey)) {
+                            log.info("Moved {} to {}", sourceKey, moved.get(sourceKey));
+                        } else {
+                            log.error("Could not move {}", sourceKey);
                         }
                     }
+                    log.info("Moved {} issues to {}", moved.size(), destProjectKey);
                 }
                 break;
                 default:
@@ -177,6 +302,13 @@ public class CLI {
     }
 
 
+    private static Map<String, String> statusesOf(Jira jira, Set<String> issueKeys) {
+        Map<String, String> statuses = new HashMap<>();
+        jira.loadIssues(issueKeys, ImmutableSet.of("status"))
+                .forEach((key, issue) -> statuses.put(key, issue.getStatus().getName()));
+        return statuses;
+    }
+
     private static void doGetIssue(Jira jira, String issueKey) {
         Issue issue = jira.loadIssue(issueKey);
 
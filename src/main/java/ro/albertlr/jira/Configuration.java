@@ -28,6 +28,7 @@ import lombok.Getter;
 import lombok.Singular;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.workflow.TransitionFlow;
 
 import java.io.IOException;
 import java.util.Collection;
@@ -85,6 +86,11 @@ public class Configuration {
         private final Collection<String> transitionPhases;
         @Singular("transition")
         private final Map<String, Collection<String>> transitions;
+        /**
+         * The transition flows compiled, by phase.
+         */
+        @Singular("flow")
+        private final Map<String, TransitionFlow> flows;
 
         public Map<String, Object> getRequiredFieldOptionsDefault(String requiredField) {
             return requiredFieldOptionsDefault.get(requiredField);
@@ -94,6 +100,11 @@ public class Configuration {
             return Optional.ofNullable(transitions.get(phase))
                     .orElse(Collections.emptyList());
         }
+
+        public TransitionFlow getFlow(String phase) {
+            return Optional.ofNullable(flows.get(phase))
+                    .orElse(TransitionFlow.EMPTY);
+        }
     }
 
     @Builder
@@ -113,6 +124,14 @@ public class Configuration {
             return Optional.ofNullable(value)
                     .orElse(defaultValue);
         }
+
+        /**
+         * @param actionConfig the configuration of an action, {@code null} when the action is not configured
+         * @return the property of the action, the default value if it is not set or the action is not configured
+         */
+        public static String propertyOf(ActionConfig actionConfig, String property, String defaultValue) {
+            return actionConfig != null ? actionConfig.getProperty(property, defaultValue) : defaultValue;
+        }
     }
 
     private Properties properties;
@@ -173,6 +192,7 @@ public class Configuration {
                         "->"
                 );
                 configBuilder.transition(transitionPhase, ImmutableList.copyOf(transitions));
+                configBuilder.flow(transitionPhase, TransitionFlow.compile(transitions));
             }
 
             IssueTypeConfig issueTypeConfig = configBuilder.build();
@@ -22,18 +22,18 @@ package ro.albertlr.jira;
 import com.atlassian.jira.rest.client.api.IssueRestClient;
 import com.atlassian.jira.rest.client.api.JiraRestClient;
 import com.atlassian.jira.rest.client.api.JiraRestClientFactory;
+import com.atlassian.jira.rest.client.api.SearchRestClient;
 import com.atlassian.jira.rest.client.api.domain.BasicIssue;
 import com.atlassian.jira.rest.client.api.domain.BasicProject;
 import com.atlassian.jira.rest.client.api.domain.Issue;
-import com.atlassian.jira.rest.client.api.domain.IssueField;
 import com.atlassian.jira.rest.client.api.domain.IssueFieldId;
 import com.atlassian.jira.rest.client.api.domain.Project;
 import com.atlassian.jira.rest.client.api.domain.Resolution;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
 import com.atlassian.jira.rest.client.api.domain.Status;
 import com.atlassian.jira.rest.client.api.domain.Transition;
 import com.atlassian.jira.rest.client.api.domain.User;
 import com.atlassian.jira.rest.client.api.domain.Version;
-import com.atlassian.jira.rest.client.api.domain.input.CannotTransformValueException;
 import com.atlassian.jira.rest.client.api.domain.input.ComplexIssueInputFieldValue;
 import com.atlassian.jira.rest.client.api.domain.input.FieldInput;
 import com.atlassian.jira.rest.client.api.domain.input.IssueInput;
@@ -41,31 +41,53 @@ import com.atlassian.jira.rest.client.api.domain.input.IssueInputBuilder;
 import com.atlassian.jira.rest.client.api.domain.input.LinkIssuesInput;
 import com.atlassian.jira.rest.client.api.domain.input.TransitionInput;
 import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClientFactory;
+import com.google.common.base.Joiner;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.io.CharStreams;
 import com.google.common.io.Files;
 import io.atlassian.util.concurrent.Promise;
 import io.atlassian.util.concurrent.Promise.TryConsumer;
 import lombok.extern.slf4j.Slf4j;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
 import ro.albertlr.jira.Configuration.ActionConfig;
 import ro.albertlr.jira.Configuration.IssueTypeConfig;
 import ro.albertlr.jira.clone.AddLinks;
 import ro.albertlr.jira.clone.CloneConfig;
+import ro.albertlr.jira.clone.ClonePlan;
+import ro.albertlr.jira.journal.Journal;
+import ro.albertlr.jira.link.LinkReplicator;
+import ro.albertlr.jira.meta.MetadataCache;
+import ro.albertlr.jira.meta.MetadataCache.CreateMeta;
+import ro.albertlr.jira.meta.MetadataCache.FieldInfo;
+import ro.albertlr.jira.meta.MetadataCache.LinkTypeInfo;
+import ro.albertlr.jira.workflow.WorkflowGraph;
 
 import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -76,6 +98,16 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 @Slf4j
 public class Jira implements AutoCloseable {
+    /**
+     * Number of issue keys put in a single {@code key in (...)} search; keeps the JQL well below the URL length limits.
+     */
+    public static final int SEARCH_CHUNK_SIZE = 100;
+    /**
+     * The fields the client needs in a search result to be able to parse the issues, whatever else was asked for.
+     */
+    public static final Set<String> REQUIRED_SEARCH_FIELDS = ImmutableSet.of("summary", "issuetype", "created", "updated", "project", "status");
+    /** All the fields of the issues, for the searches loading the issues to clone or move. */
+    public static final Set<String> ALL_FIELDS = ImmutableSet.of("*all");
 
     public static Jira getInstance() {
         try {
@@ -98,6 +130,12 @@ public class Jira implements AutoCloseable {
 
     private Configuration configuration;
 
+    private volatile LinkReplicator linkReplicator;
+    private volatile MetadataCache metadata;
+    private volatile WorkflowGraph workflows;
+    private final Map<String, ClonePlan> clonePlans = new ConcurrentHashMap<>();
+    private volatile Journal journal = Journal.none();
+
     private Jira(String jiraServerUrl, String user, char[] password) throws URISyntaxException {
         factory = new AsynchronousJiraRestClientFactory();
         jiraServerUri = new URI(jiraServerUrl);
@@ -119,6 +157,17 @@ public class Jira implements AutoCloseable {
         }
     }
 
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * The name of the user the client is authenticated as.
+     */
+    public String getUser() {
+        return user;
+    }
+
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
     }
@@ -159,6 +208,74 @@ public class Jira implements AutoCloseable {
         }
     }
 
+    /**
+     * The link replicator shared by all the actions, set up from the configuration of the link action.
+     */
+    public LinkReplicator linkReplicator() {
+        if (linkReplicator == null) {
+            synchronized (this) {
+                if (linkReplicator == null) {
+                    ActionConfig config = configuration.actionConfigFor(Action.Name.LINK);
+                    linkReplicator = new LinkReplicator(
+                            this,
+                            Integer.parseInt(ActionConfig.propertyOf(config, "action.link.parallelism", String.valueOf(LinkReplicator.DEFAULT_THREADS))),
+                            Integer.parseInt(ActionConfig.propertyOf(config, "action.link.retryCount", "2")) + 1,
+                            Long.parseLong(ActionConfig.propertyOf(config, "action.link.timeoutMillis", "0"))
+                    );
+                }
+            }
+        }
+        return linkReplicator;
+    }
+
+    /**
+     * The server metadata cache shared by all the actions, kept in {@code metadata.cache.file}.
+     */
+    public MetadataCache metadata() {
+        if (metadata == null) {
+            synchronized (this) {
+                if (metadata == null) {
+                    Properties properties = configuration.getProperties();
+                    metadata = new MetadataCache(
+                            this::restClient,
+                            new File(properties.getProperty("metadata.cache.file", ".jira-metadata")),
+                            TimeUnit.MINUTES.toMillis(Long.parseLong(properties.getProperty("metadata.cache.ttlMinutes", "1440")))
+                    );
+                }
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * The workflows learned from the transitions of the issues, kept in {@code workflow.cache.file}.
+     */
+    public WorkflowGraph workflows() {
+        if (workflows == null) {
+            synchronized (this) {
+                if (workflows == null) {
+                    Properties properties = configuration.getProperties();
+                    workflows = new WorkflowGraph(
+                            new File(properties.getProperty("workflow.cache.file", ".jira-workflows")),
+                            TimeUnit.MINUTES.toMillis(Long.parseLong(properties.getProperty("workflow.cache.ttlMinutes", "10080")))
+                    );
+                }
+            }
+        }
+        return workflows;
+    }
+
+    /**
+     * The journal the bulk jobs record their operations to, see {@link Journal}.
+     */
+    public Journal journal() {
+        return journal;
+    }
+
+    public void useJournal(Journal journal) {
+        this.journal = journal;
+    }
+
     public IssueRestClient issueClient() {
         return restClient()
                 .getIssueClient();
@@ -181,6 +298,74 @@ public class Jira implements AutoCloseable {
         }
     }
 
+    public SearchRestClient searchClient() {
+        return restClient()
+                .getSearchClient();
+    }
+
+    /**
+     * Loads many issues with a few {@code key in (...)} searches (all sent at once) instead of one request per issue.
+     * <p>
+     * A search fails as a whole if one of its keys does not exist, in which case the issues of that chunk are loaded
+     * one by one. Issues that cannot be loaded at all are missing from the result.
+     *
+     * @param fields the fields to load, {@code null} for all navigable fields
+     */
+    public Map<String, Issue> loadIssues(Iterable<String> issueKeys, Set<String> fields) {
+        return loadIssues(issueKeys, fields, null);
+    }
+
+    /**
+     * Like {@link #loadIssues(Iterable, Set)}, but only loads the issues also matching the JQL condition, e.g.
+     * {@code issuetype = "Functional Area"}. The issues of a chunk loaded one by one are not checked against it.
+     */
+    public Map<String, Issue> loadIssues(Iterable<String> issueKeys, Set<String> fields, String condition) {
+        List<List<String>> chunks = new ArrayList<>();
+        Iterables.partition(ImmutableSet.copyOf(issueKeys), SEARCH_CHUNK_SIZE)
+                .forEach(chunks::add);
+
+        List<Promise<SearchResult>> searches = new ArrayList<>(chunks.size());
+        for (List<String> chunk : chunks) {
+            String jql = condition == null ? keyInJql(chunk) : "(" + condition + ") AND " + keyInJql(chunk);
+            searches.add(search(jql, 0, chunk.size(), fields));
+        }
+
+        Map<String, Issue> issues = new LinkedHashMap<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            try {
+                for (Issue issue : searches.get(i).claim().getIssues()) {
+                    issues.put(issue.getKey(), issue);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not bulk load {}, loading them one by one: {}", chunks.get(i), e.getMessage());
+                for (String issueKey : chunks.get(i)) {
+                    try {
+                        issues.put(issueKey, loadIssue(issueKey));
+                    } catch (RuntimeException exception) {
+                        log.warn("Could not load {}", issueKey, exception);
+                    }
+                }
+            }
+        }
+        log.debug("Loaded {} issues with {} searches", issues.size(), chunks.size());
+        return issues;
+    }
+
+    /**
+     * One page of a JQL search; only the given fields (and the {@link #REQUIRED_SEARCH_FIELDS}) are loaded, all of them
+     * if {@code fields} is {@code null}.
+     */
+    public Promise<SearchResult> search(String jql, int startAt, int maxResults, Set<String> fields) {
+        Set<String> searchFields = fields == null
+                ? null
+                : ImmutableSet.<String>builder().addAll(REQUIRED_SEARCH_FIELDS).addAll(fields).build();
+        return searchClient().searchJql(jql, maxResults, startAt, searchFields);
+    }
+
+    static String keyInJql(Collection<String> issueKeys) {
+        return "key in (" + Joiner.on(',').join(issueKeys) + ")";
+    }
+
     public Iterable<Transition> loadTransitionsFor(Issue issue) {
         try {
             Promise<Iterable<Transition>> transisionsPromise = issueClient().getTransitions(issue);
@@ -196,18 +381,130 @@ public class Jira implements AutoCloseable {
     }
 
     public Promise<Void> transitionIssue(Issue issue, Transition transition) {
-        TransitionInput transitionInput = new TransitionInput(transition.getId());
+        return transitionIssue(issue, transition.getId());
+    }
+
+    public Promise<Void> transitionIssue(Issue issue, int transitionId) {
+        TransitionInput transitionInput = new TransitionInput(transitionId);
         Promise<Void> result = issueClient()
                 .transition(issue, transitionInput);
 
         return result;
     }
 
+    /**
+     * GETs a resource of the REST API as JSON, for what the client does not expose (e.g. the status a transition leads
+     * to).
+     *
+     * @param path the path of the resource on the server, e.g. {@code rest/api/2/issue/KEY/transitions}
+     */
+    public JSONObject getJson(String path) {
+        JSONObject response = rest("GET", path);
+        if (response == null) {
+            throw new IllegalStateException(format("GET %s returned nothing", path));
+        }
+        return response;
+    }
+
+    /**
+     * Sends a request to the REST API, authenticated as the user of the client.
+     *
+     * @return the JSON response, {@code null} if there is none
+     * @throws IllegalStateException if the server refused the request
+     */
+    public JSONObject rest(String method, String path) {
+        URI uri = jiraServerUri.resolve(path);
+        try {
+            HttpURLConnection connection = connect(method, uri);
+            connection.setRequestProperty("Accept", "application/json");
+            int status = connection.getResponseCode();
+            if (status >= 300) {
+                connection.disconnect();
+                throw new IllegalStateException(format("%s %s failed with HTTP %d", method, uri, status));
+            }
+            if (status == HttpURLConnection.HTTP_NO_CONTENT) {
+                return null;
+            }
+            try (Reader reader = new InputStreamReader(connection.getInputStream(), UTF_8)) {
+                String body = CharStreams.toString(reader);
+                return body.trim().isEmpty() ? null : new JSONObject(body);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("%s %s failed", method, uri), e);
+        } catch (JSONException e) {
+            throw new IllegalStateException(format("Unexpected response to %s %s", method, uri), e);
+        }
+    }
+
+    /**
+     * Opens the content at the URI (e.g. of an attachment) for reading as it comes from the server, unlike the REST
+     * client that reads the whole response into memory first.
+     *
+     * @throws IllegalStateException if the server refused the request
+     */
+    public InputStream download(URI uri) throws IOException {
+        HttpURLConnection connection = connect("GET", uri);
+        int status = connection.getResponseCode();
+        if (status >= 300) {
+            connection.disconnect();
+            throw new IllegalStateException(format("GET %s failed with HTTP %d", uri, status));
+        }
+        return connection.getInputStream();
+    }
+
+    /**
+     * Opens a connection authenticated as the user of the client, giving up after {@code rest.connectTimeoutMillis} to
+     * connect and {@code rest.readTimeoutMillis} without reading anything (0 for no limit).
+     */
+    private HttpURLConnection connect(String method, URI uri) throws IOException {
+        Properties properties = configuration.getProperties();
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setConnectTimeout(Integer.parseInt(properties.getProperty("rest.connectTimeoutMillis", "10000")));
+        connection.setReadTimeout(Integer.parseInt(properties.getProperty("rest.readTimeoutMillis", "60000")));
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Authorization", "Basic " + Base64.getEncoder()
+                .encodeToString((user + ':' + new String(password)).getBytes(UTF_8)));
+        return connection;
+    }
+
     public Promise<BasicIssue> cloneIssue(Issue source, CloneConfig config) {
         return cloneAndMoveIssue(source, config, source.getProject());
     }
 
+    /**
+     * Clones a single issue and replicates its links; subtasks and attachments are copied by the stages of
+     * {@link ro.albertlr.jira.clone.BulkClone}.
+     */
     public Promise<BasicIssue> cloneAndMoveIssue(Issue source, CloneConfig config, BasicProject targetProject) {
+        IssueInput issueInput = cloneInput(source, config, targetProject);
+
+        Promise<BasicIssue> result = issueClient()
+                .createIssue(issueInput)
+                .then(config.isCloningLinks() ? new AddLinks(this, source, configuration) : noOpConsumer());
+
+        return result;
+    }
+
+    /**
+     * Builds the input creating a copy of the source issue in the target project, as configured for its issue type.
+     */
+    public IssueInput cloneInput(Issue source, CloneConfig config, BasicProject targetProject) {
+        return cloneInput(source, config, targetProject, null);
+    }
+
+    /**
+     * @param parentKey the parent of the copy when the source is a subtask, {@code null} otherwise
+     */
+    public IssueInput cloneInput(Issue source, CloneConfig config, BasicProject targetProject, String parentKey) {
+        return cloneInput(source, config, targetProject, parentKey, Collections.emptyMap());
+    }
+
+    /**
+     * @param newKeys keys of the issues already cloned in the same job, by the key of their source; fields of the
+     *                source referring to them refer to their clones in the copy
+     */
+    public IssueInput cloneInput(Issue source, CloneConfig config, BasicProject targetProject, String parentKey,
+                                 Map<String, String> newKeys) {
         IssueInputBuilder issueBuilder = new IssueInputBuilder(targetProject, source.getIssueType());
 
         IssueTypeConfig typeConfig = configuration.configFor(source.getIssueType().getName());
@@ -218,15 +515,25 @@ public class Jira implements AutoCloseable {
             );
         }
 
+        CreateMeta createMeta = metadata().createMeta(targetProject.getKey(), source.getIssueType().getName());
+        if (createMeta == null) {
+            throw new IllegalArgumentException(
+                    format("Cannot create issues of type %s in %s", source.getIssueType().getName(), targetProject.getKey())
+            );
+        }
+
         Status status = source.getStatus();
         Resolution resolution = source.getResolution();
         issueBuilder.setSummary(source.getSummary())
                 .setDescription(source.getDescription())
                 .setPriority(source.getPriority());
+        if (parentKey != null) {
+            issueBuilder.setFieldValue("parent", ComplexIssueInputFieldValue.with("key", parentKey));
+        }
 
         if (source.getReporter() != null) {
             User reporter = source.getReporter();
-            if (reporter.isActive()) {
+            if (metadata().isActive(reporter.getName())) {
                 issueBuilder.setReporter(reporter);
             } else {
                 log.trace("Set {} as reporter as {} is inactive", user, reporter.getName());
@@ -235,7 +542,7 @@ public class Jira implements AutoCloseable {
         }
         if (source.getAssignee() != null) {
             User assignee = source.getAssignee();
-            if (assignee.isActive()) {
+            if (metadata().isActive(assignee.getName())) {
                 issueBuilder.setAssignee(assignee);
             } else {
                 log.trace("Set {} as assignee as {} is inactive", user, assignee.getName());
@@ -255,7 +562,6 @@ public class Jira implements AutoCloseable {
         if (config.isCloningComponents() && source.getProject().getKey().equals(targetProject.getKey())) {
             issueBuilder.setComponents(source.getComponents());
         }
-        Collection<IssueField> issueFields = Lists.newArrayList(source.getFields());
         if (config.isCloningLabels()) {
             issueBuilder.setFieldValue("labels", Lists.newArrayList(source.getLabels()));
         }
@@ -266,51 +572,31 @@ public class Jira implements AutoCloseable {
             issueBuilder.setFieldValue(fieldId, new ComplexIssueInputFieldValue(asMap));
         }
 
-        for (IssueField field : safe(source.getFields())) {
-            final String id = field.getId();
-            final Object value = field.getValue();
-            if (value != null
-                    && !typeConfig.getFieldsToNotClone().contains(id)
-                    && !typeConfig.getRequiredFields().contains(id)) {
-                try {
-                    String asString = String.valueOf(value);
-                    log.debug("Setting field {}", field);
-                    issueBuilder.setFieldValue(id, asString);
-                } catch (CannotTransformValueException exception) {
-                    log.warn("Could not set field {}", field, exception);
-                }
+        clonePlan(typeConfig, createMeta).apply(source, issueBuilder, newKeys);
+
+        IssueInput input = issueBuilder.build();
+        List<String> missing = new ArrayList<>();
+        for (FieldInfo field : createMeta.getFields().values()) {
+            if (field.isRequired() && !input.getFields().containsKey(field.getId())) {
+                missing.add(field.getId());
             }
         }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException(
+                    format("Cannot clone %s to %s, required fields %s are not set", source.getKey(), targetProject.getKey(), missing)
+            );
+        }
+        return input;
+    }
 
-        IssueInput issueInput = issueBuilder.build();
-
-        Promise<BasicIssue> result = issueClient()
-                .createIssue(issueInput)
-                .then(config.isCloningLinks() ? new AddLinks(this, source, configuration) : noOpConsumer());
-
-//        try {
-//            BasicIssue resultingIssue = null;
-//            resultingIssue = result.get();
-//            log.info("Start linking");
-//            new AddLinks(source)
-//                    .accept(resultingIssue);
-//        } catch (InterruptedException e) {
-//            e.printStackTrace();
-//        } catch (ExecutionException e) {
-//            e.printStackTrace();
-//        }
-
-//                .then(config.isCloningAttachments() ? new AddAttachments(source) : noOpConsumer())
-//                .then(config.isCloningLinks() ? new AddLinks(source) : noOpConsumer())
-//                .then(config.isCloningSubtasks() ? new CloneSubtasks(source) : noOpConsumer())
-//                .then(
-//                        loggingConsumer(
-//                                () -> format("Successfully cloned %s", source.getKey()),
-//                                () -> format("Failed to clone %s", source.getKey())
-//                        )
-//                );
-
-        return result;
+    /**
+     * The fields to copy when cloning issues of a type to a project, compiled once per issue type and project.
+     */
+    private ClonePlan clonePlan(IssueTypeConfig typeConfig, CreateMeta createMeta) {
+        return clonePlans.computeIfAbsent(
+                createMeta.getProjectKey() + '|' + createMeta.getIssueTypeName(),
+                key -> ClonePlan.compile(typeConfig, createMeta)
+        );
     }
 
     public void assignToMe(String key) {
@@ -318,37 +604,50 @@ public class Jira implements AutoCloseable {
     }
 
     public void assignTo(String key, String user) {
-        Issue issue = loadIssue(key);
+        assign(key, user).claim();
+    }
+
+    /**
+     * Assigns the issue without loading it.
+     */
+    public Promise<Void> assign(String key, String user) {
         IssueInput issueInput = IssueInput.createWithFields(
                 new FieldInput(
                         IssueFieldId.ASSIGNEE_FIELD,
                         ComplexIssueInputFieldValue.with("name", user)
                 )
         );
-        issueClient()
-                .updateIssue(key, issueInput)
-                .claim();
+        return issueClient()
+                .updateIssue(key, issueInput);
     }
 
     public void link(String fromKey, String toKey, String linkType) {
-        Issue from = loadIssue(fromKey);
-        Issue to = loadIssue(toKey);
-        link(from, to, linkType);
+        LinkIssuesInput link = new LinkIssuesInput(fromKey, toKey, normalizeLinkType(linkType));
+        log.info("Link {} to {} as {}", link.getFromIssueKey(), link.getToIssueKey(), link.getLinkType());
+        link(link);
     }
 
     public void link(Issue from, Issue to, String linkType) {
-        LinkIssuesInput link = new LinkIssuesInput(from.getKey(), to.getKey(), normalizeLinkType(linkType));
-        log.info("Link {} to {} as {}", link.getFromIssueKey(), link.getToIssueKey(), link.getLinkType());
-        link(link);
+        link(from.getKey(), to.getKey(), linkType);
     }
 
-    private String normalizeLinkType(String linkType) {
+    /**
+     * @return the name of the link type on the server for a configured link type or a link type name/description
+     * @throws IllegalArgumentException if there is no such link type on the server
+     */
+    public String normalizeLinkType(String linkType) {
+        String name = linkType;
         for (Map.Entry<String, String> type : configuration.getLinkTypes().entrySet()) {
             if (type.getKey().equals(linkType) || type.getValue().equals(linkType)) {
-                return type.getValue();
+                name = type.getValue();
+                break;
             }
         }
-        return linkType;
+        LinkTypeInfo known = metadata().linkType(name);
+        if (known == null) {
+            throw new IllegalArgumentException(format("Unknown link type %s", linkType));
+        }
+        return known.getName();
     }
 
     public static Promise<BasicIssue> then(Promise<BasicIssue> basicIssue, boolean condition, TryConsumer<BasicIssue> processor) {
@@ -421,6 +720,24 @@ public class Jira implements AutoCloseable {
 
     @Override
     public void close() throws Exception {
+        if (linkReplicator != null) {
+            linkReplicator.close();
+        }
+        journal.close();
+        if (metadata != null) {
+            try {
+                metadata.save();
+            } catch (IOException e) {
+                log.warn("Could not save the metadata cache", e);
+            }
+        }
+        if (workflows != null) {
+            try {
+                workflows.save();
+            } catch (IOException e) {
+                log.warn("Could not save the workflow cache", e);
+            }
+        }
         if (jiraRestClient != null) {
             synchronized (this) {
                 if (jiraRestClient != null) {
@@ -28,6 +28,7 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import ro.albertlr.jira.csv.Output;
 
 @UtilityClass
 @Slf4j
@@ -38,6 +39,18 @@ public class Params {
     public static final String ACTION_ARG = "action";
     public static final String TARGET_ARG = "target";
     public static final String LINK_TYPE_ARG = "link-type";
+    public static final String SPILL_DIR_ARG = "spill-dir";
+    public static final String SNAPSHOT_ARG = "snapshot";
+    public static final String JQL_ARG = "jql";
+    public static final String FIELDS_ARG = "fields";
+    public static final String CHECKPOINT_ARG = "checkpoint";
+    public static final String OUTPUT_ARG = "output";
+    public static final String FORMAT_ARG = "format";
+    public static final String GZIP_ARG = "gzip";
+    public static final String ROWS_PER_FILE_ARG = "rows-per-file";
+    public static final String JOURNAL_ARG = "journal";
+    public static final String RESUME_ARG = "resume";
+    public static final String FILTER_ARG = "filter";
 
     public static String getParameter(CommandLine cli, String argument, String defaultValue) {
         if (cli.hasOption(argument)) {
@@ -51,6 +64,15 @@ public class Params {
         return cli.getOptionValue(argument);
     }
 
+    public static Output output(CommandLine cli) {
+        return Output.builder()
+                .path(getParameter(cli, OUTPUT_ARG, Output.DEFAULT_PATH))
+                .format(Output.Format.from(getParameter(cli, FORMAT_ARG, Output.Format.CSV.toString())))
+                .gzip(cli.hasOption(GZIP_ARG))
+                .rowsPerFile(Long.parseLong(getParameter(cli, ROWS_PER_FILE_ARG, "0")))
+                .build();
+    }
+
     public static CommandLineParser parser() {
         return new DefaultParser();
     }
@@ -61,7 +83,7 @@ public class Params {
                 Option.builder("a")
                         .required()
                         .longOpt(ACTION_ARG)
-                        .desc("Action to do. Can be one of: get, get-e2es, link, clone, move")
+                        .desc("Action to do. Can be one of: get, get-e2es, analyze-e2es, graph-diff, export-fa, search, link, links, delete-links, apply-plan, clone, move")
                         .hasArg()
                         .argName("action")
                         .build()
@@ -73,14 +95,121 @@ public class Params {
                         .desc("If action is <get-e2es> then can recursively find all the E2Es of E2Es")
                         .build()
         );
+        options.addOption(
+                Option.builder()
+                        .longOpt(SPILL_DIR_ARG)
+                        .desc("If action is <get-e2es> then keep the traversal state in files of this directory " +
+                                "instead of the heap. Implies --recursive")
+                        .hasArg()
+                        .argName("DIR")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt(SNAPSHOT_ARG)
+                        .desc("If action is <get-e2es> then also save the depends-on graph as a binary snapshot " +
+                                "to this file. Snapshots can be compared with the <graph-diff> action. Cannot be " +
+                                "used with --" + SPILL_DIR_ARG)
+                        .hasArg()
+                        .argName("FILE")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("q")
+                        .longOpt(JQL_ARG)
+                        .desc("JQL query of the issues to export when action is <search>, of the issues whose " +
+                                "links to export when action is <links>, or of the issues to " +
+                                "transition (instead of --source) when action is <advance-issue>, " +
+                                "<auto-transition-issue>, <block-issue>, <unblock-issue>, <assignTo>")
+                        .hasArg()
+                        .argName("JQL")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt(FIELDS_ARG)
+                        .desc("Comma separated fields to export when action is <search>; defaults to " +
+                                "key,summary,issuetype,status,assignee,updated")
+                        .hasArg()
+                        .argName("FIELDS")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt(CHECKPOINT_ARG)
+                        .desc("If action is <search> then only export the issues changed since the run that saved " +
+                                "this checkpoint file and merge them into its output")
+                        .hasArg()
+                        .argName("FILE")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("o")
+                        .longOpt(OUTPUT_ARG)
+                        .desc("File to export to; defaults to " + Output.DEFAULT_PATH + ". Gzipped if it ends with .gz")
+                        .hasArg()
+                        .argName("FILE")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt(FORMAT_ARG)
+                        .desc("Format of the exported records. Can be <csv>, <jsonl>")
+                        .hasArg()
+                        .argName("FORMAT")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt(GZIP_ARG)
+                        .desc("Gzip the exported file(s)")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt(ROWS_PER_FILE_ARG)
+                        .desc("Start a new, numbered, export file after this many records")
+                        .hasArg()
+                        .argName("ROWS")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt(JOURNAL_ARG)
+                        .desc("Record the clones and links done by <clone>, <move>, <link>, <apply-plan> to this " +
+                                "journal, so that the job can be resumed if it stops")
+                        .hasArg()
+                        .argName("FILE")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt(RESUME_ARG)
+                        .desc("Resume the job recorded in this journal: what was done is skipped, what was in flight " +
+                                "is retried")
+                        .hasArg()
+                        .argName("FILE")
+                        .build()
+        );
         options.addOption(
                 Option.builder("t")
                         .longOpt(TARGET_ARG)
-                        .desc("Target issue key. ")
+                        .desc("Target issue key. If action is <graph-diff> then the newer snapshot file. If action " +
+                                "is <delete-links> then only the links to these issues are deleted")
                         .hasArg()
                         .argName("ISSUE_ID")
                         .build()
         );
+        options.addOption(
+                Option.builder()
+                        .longOpt(FILTER_ARG)
+                        .desc("If action is <links> or <delete-links> then only the links matching this filter " +
+                                "are exported or deleted, " +
+                                "e.g. \"type ~ cover and direction = out and project = JCLDALL\"")
+                        .hasArg()
+                        .argName("FILTER")
+                        .build()
+        );
         options.addOption(
                 Option.builder()
                         .longOpt(LINK_TYPE_ARG)
@@ -101,9 +230,8 @@ public class Params {
 
         options.addOption(
                 Option.builder("s")
-                        .required()
                         .longOpt(SOURCE_ARG)
-                        .desc("Source JIRA key to clone")
+                        .desc("Source JIRA key to clone. Required by all actions but <search>")
                         .hasArg()
                         .argName("ISSUE_ID")
                         .build()
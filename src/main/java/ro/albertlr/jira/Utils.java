@@ -19,12 +19,27 @@
  */
 package ro.albertlr.jira;
 
+import com.github.rholder.retry.Retryer;
+import com.github.rholder.retry.RetryerBuilder;
+import com.github.rholder.retry.StopStrategies;
+import com.github.rholder.retry.WaitStrategies;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.experimental.UtilityClass;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 @UtilityClass
 public class Utils {
@@ -58,4 +73,78 @@ public class Utils {
                 .split(delimitedText);
     }
 
+    /**
+     * A task run for each item by {@link #forEachInParallel}.
+     */
+    public interface ItemTask<T> {
+        void run(T item) throws Exception;
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class ParallelRun {
+        private final int succeeded;
+        private final int failed;
+    }
+
+    /**
+     * Runs the task for each item, {@code parallelism} items at a time, each retried as by {@link #retryer(int)}. At
+     * most twice as many items as the parallelism are taken ahead of the running ones, so a lazy iterable (e.g. a
+     * search) is not read all at once. Returns once all the items are done.
+     *
+     * @param threadNameFormat the name of the threads, e.g. {@code assign-%d}
+     * @param onFailure        called with the item and the last failure when all the attempts failed
+     */
+    public static <T> ParallelRun forEachInParallel(String threadNameFormat, Iterable<T> items, int parallelism,
+                                                    int maxAttempts, ItemTask<T> task,
+                                                    BiConsumer<T, Exception> onFailure) {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                parallelism,
+                new ThreadFactoryBuilder().setNameFormat(threadNameFormat).setDaemon(true).build()
+        );
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        try {
+            for (T item : items) {
+                inFlight.acquireUninterruptibly();
+                executor.execute(() -> {
+                    Retryer<Void> retryer = retryer(maxAttempts);
+                    try {
+                        retryer.call(() -> {
+                            task.run(item);
+                            return null;
+                        });
+                        succeeded.incrementAndGet();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        onFailure.accept(item, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+            }
+        }
+        return new ParallelRun(succeeded.get(), failed.get());
+    }
+
+    /**
+     * Retries on any exception, waiting exponentially longer (up to 10 seconds) between the attempts.
+     */
+    public static <T> Retryer<T> retryer(int maxAttempts) {
+        return RetryerBuilder.<T>newBuilder()
+                .retryIfException()
+                .withWaitStrategy(WaitStrategies.exponentialWait(200, 10, TimeUnit.SECONDS))
+                .withStopStrategy(StopStrategies.stopAfterAttempt(maxAttempts))
+                .build();
+    }
 }
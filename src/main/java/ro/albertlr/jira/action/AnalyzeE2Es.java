@@ -0,0 +1,47 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.action;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Action;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.graph.DependencyGraph;
+import ro.albertlr.jira.graph.GraphAnalysis;
+
+import java.util.Map;
+import java.util.Set;
+
+import static ro.albertlr.jira.Action.paramAt;
+
+@Slf4j
+public class AnalyzeE2Es implements Action<GraphAnalysis> {
+    @Override
+    public GraphAnalysis execute(Jira jira, String... params) {
+        String jiraSourceKey = paramAt(params, 0, "sourceKey");
+
+        Map<String, Set<Issue>> e2es = Name.GET_E2ES.execute(jira, jiraSourceKey, String.valueOf(true));
+
+        DependencyGraph graph = DependencyGraph.of(e2es);
+        log.info("Depends-on graph of {} has {} issues and {} links", jiraSourceKey, graph.size(), graph.edgeCount());
+
+        return new GraphAnalysis(graph);
+    }
+}
@@ -0,0 +1,108 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.action;
+
+import com.atlassian.jira.rest.client.api.domain.input.LinkIssuesInput;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Action;
+import ro.albertlr.jira.Configuration;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.link.LinkPlan;
+import ro.albertlr.jira.link.LinkReplicator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ro.albertlr.jira.Action.paramAt;
+import static ro.albertlr.jira.Configuration.ActionConfig.propertyOf;
+import static ro.albertlr.jira.Utils.split;
+
+/**
+ * Applies {@link LinkPlan}s in this process. The entries of a plan are applied {@code action.apply-plan.batchSize} at a
+ * time: the current links of the issues of a batch are read with one search and the missing links are created in
+ * parallel by the {@link LinkReplicator}. The progress is saved after each fully applied batch, so applying the plan
+ * again resumes after the last applied entry. Returns the number of entries applied.
+ */
+@Slf4j
+public class ApplyPlan implements Action<Long> {
+    private static final String BATCH_SIZE = "action.apply-plan.batchSize";
+
+    private final Configuration configuration = Configuration.loadConfiguration();
+
+    @Override
+    public Long execute(Jira jira, String... params) {
+        String plans = paramAt(params, 0, "plans");
+        int batchSize = Integer.parseInt(propertyOf(configuration.actionConfigFor(Name.APPLY_PLAN), BATCH_SIZE, "100"));
+
+        long applied = 0;
+        for (String plan : split(plans)) {
+            try {
+                applied += apply(jira, new File(plan), batchSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return applied;
+    }
+
+    private long apply(Jira jira, File plan, int batchSize) throws IOException {
+        List<LinkPlan.Entry> entries = LinkPlan.read(plan);
+        int start = LinkPlan.readProgress(plan);
+        if (start >= entries.size()) {
+            log.info("{} was already applied", plan);
+            return 0;
+        }
+        if (start > 0) {
+            log.info("Resuming {} after entry {} of {}", plan, start, entries.size());
+        }
+
+        for (int from = start; from < entries.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, entries.size());
+
+            LinkReplicator.Result result = jira.linkReplicator().replicate(byIssue(jira, entries.subList(from, to)));
+            if (result.getFailed() > 0) {
+                log.error("{} links of {} could not be created; apply the plan again to resume from entry {}",
+                        result.getFailed(), plan, from);
+                return from - start;
+            }
+
+            LinkPlan.writeProgress(plan, to);
+            log.debug("Applied {}/{} entries of {}", to, entries.size(), plan);
+        }
+
+        log.info("Applied {}", plan);
+        return entries.size() - start;
+    }
+
+    private static Map<String, Collection<LinkIssuesInput>> byIssue(Jira jira, List<LinkPlan.Entry> entries) {
+        Map<String, Collection<LinkIssuesInput>> linksByIssue = new LinkedHashMap<>();
+        for (LinkPlan.Entry entry : entries) {
+            linksByIssue.computeIfAbsent(entry.getIssue(), issue -> new ArrayList<>())
+                    .add(entry.toInput(jira.normalizeLinkType(entry.getType())));
+        }
+        return linksByIssue;
+    }
+}
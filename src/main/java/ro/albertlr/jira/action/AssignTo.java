@@ -2,7 +2,7 @@
  * #%L
  * jira-cli
  *  
- * Copyright (C) 2019 László-Róbert, Albert (robert@albertlr.ro)
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
  *  
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,41 +19,79 @@
  */
 package ro.albertlr.jira.action;
 
-import com.google.common.base.Splitter;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
 import ro.albertlr.jira.Action;
+import ro.albertlr.jira.Configuration.ActionConfig;
 import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.Utils;
+import ro.albertlr.jira.search.JqlSearch;
 
-import java.util.function.BiFunction;
+import java.util.Collections;
+
+import static java.lang.String.format;
+import static ro.albertlr.jira.Configuration.ActionConfig.propertyOf;
+
+/**
+ * Assigns issues, given by keys or, when the third parameter is set, by a JQL query, to a user ({@code @me} by
+ * default), to nobody for an empty name or to the default assignee for {@code -1}. The issues are not loaded: the
+ * user, if any, is checked once (through the metadata cache) and the updates are sent
+ * {@code action.assignTo.parallelism} at a time, at most {@code action.assignTo.requestsPerSecond}, each retried
+ * {@code action.assignTo.retryCount} times. Returns the number of issues assigned.
+ */
+@Slf4j
+public class AssignTo implements Action<Integer> {
+    private static final String PARALLELISM = "action.assignTo.parallelism";
+    private static final String RETRY_COUNT = "action.assignTo.retryCount";
+    private static final String REQUESTS_PER_SECOND = "action.assignTo.requestsPerSecond";
+    private static final String DEFAULT_ASSIGNEE = "-1";
 
-public class AssignTo implements Action<Void> {
     @Override
-    public Void execute(Jira jira, String... params) {
+    public Integer execute(Jira jira, String... params) {
         String issueKeys = Action.paramAt(params, 0, "issueKey");
         String username = Action.paramAt(params, 1, "assign-to", "@me");
+        String jql = Action.paramAt(params, 2, "jql", null);
 
-        Iterable<String> sourceKeys = Splitter.on(',')
-                .trimResults()
-                .omitEmptyStrings()
-                .split(issueKeys);
-
-
-        BiFunction<String, String, Void> assignTo = null;
-        if ("@me".equals(username)) {
-            assignTo = (key, ignore) -> {
-                jira.assignToMe(key);
-                return null;
-            };
-        } else {
-            assignTo = (key, user) -> {
-                jira.assignTo(key, user);
-                return null;
-            };
+        String assignee = "@me".equals(username) ? jira.getUser() : username;
+        // the empty name un-assigns and -1 assigns to the default assignee, neither is a user
+        boolean user = !assignee.isEmpty() && !DEFAULT_ASSIGNEE.equals(assignee);
+        if (user && !jira.metadata().isActive(assignee)) {
+            throw new IllegalArgumentException(format("Cannot assign issues to %s, there is no such active user", assignee));
         }
 
-        for (String sourceKey : sourceKeys) {
-            assignTo.apply(sourceKey, username);
-        }
+        ActionConfig actionConfig = jira.getConfiguration().actionConfigFor(Name.ASSIGN_TO);
+        int parallelism = Integer.parseInt(propertyOf(actionConfig, PARALLELISM, "8"));
+        int maxAttempts = Integer.parseInt(propertyOf(actionConfig, RETRY_COUNT, "2")) + 1;
+        double requestsPerSecond = Double.parseDouble(propertyOf(actionConfig, REQUESTS_PER_SECOND, "0"));
+        RateLimiter rateLimiter = requestsPerSecond > 0 ? RateLimiter.create(requestsPerSecond) : null;
 
-        return null;
+        Utils.ParallelRun run = Utils.forEachInParallel("assign-%d", keys(jira, issueKeys, jql), parallelism, maxAttempts,
+                issueKey -> {
+                    if (rateLimiter != null) {
+                        rateLimiter.acquire();
+                    }
+                    jira.assign(issueKey, assignee).claim();
+                    log.debug("Assigned {} to {}", issueKey, assignee);
+                },
+                (issueKey, e) -> log.error("Could not assign {} to {}", issueKey, assignee, e));
+
+        log.info("Assigned {} issues to {}, {} failed", run.getSucceeded(), assignee, run.getFailed());
+        return run.getSucceeded();
+    }
+
+    private static Iterable<String> keys(Jira jira, String issueKeys, String jql) {
+        if (jql == null) {
+            return Utils.split(issueKeys);
+        }
+        JqlSearch search = JqlSearch.builder()
+                .jira(jira)
+                .jql(jql)
+                .fields(Collections.emptySet())
+                .build();
+        // the keys are all read before assigning, as the assignments may change what the query matches (and pages)
+        return Lists.newArrayList(Iterables.transform(search, Issue::getKey));
     }
 }
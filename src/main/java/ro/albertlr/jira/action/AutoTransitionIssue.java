@@ -19,73 +19,52 @@
  */
 package ro.albertlr.jira.action;
 
-import com.atlassian.jira.rest.client.api.domain.Issue;
-import com.atlassian.jira.rest.client.api.domain.Transition;
-import io.atlassian.util.concurrent.Promise;
 import lombok.extern.slf4j.Slf4j;
 import ro.albertlr.jira.Action;
 import ro.albertlr.jira.Configuration;
+import ro.albertlr.jira.Configuration.ActionConfig;
 import ro.albertlr.jira.Configuration.IssueTypeConfig;
 import ro.albertlr.jira.Jira;
-import ro.albertlr.jira.Utils;
-
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import ro.albertlr.jira.workflow.BulkTransition;
+import ro.albertlr.jira.workflow.TransitionPlanner;
 
+/**
+ * Takes issues through the transition flow configured for their type and the phase (e.g. block), see
+ * {@link TransitionPlanner}. The issues are given by keys or, when the third parameter is set, by a JQL query, and are
+ * transitioned {@code action.auto-transition-issue.parallelism} at a time.
+ */
 @Slf4j
 public class AutoTransitionIssue implements Action<Void> {
 
+    private static final String PARALLELISM = "action.auto-transition-issue.parallelism";
+
     private final Configuration configuration = Configuration.loadConfiguration();
 
     @Override
     public Void execute(Jira jira, String... params) {
         String issueKeys = Action.paramAt(params, 0, "issueKey");
-        String phase = Action.paramAt(params, 0, "phase");
-
-        for (String issueKey : Utils.split(issueKeys)) {
-            Issue issue = jira.loadIssue(issueKey);
+        String phase = Action.paramAt(params, 1, "phase");
+        String jql = Action.paramAt(params, 2, "jql", null);
 
+        TransitionPlanner planner = new TransitionPlanner(jira);
+        bulkTransition(jira).build().run(BulkTransition.issues(jira, issueKeys, jql), issue -> {
             IssueTypeConfig typeConfig = configuration.configFor(issue.getIssueType().getName());
-            Collection<String> phases = typeConfig.getTransitionFlow(phase)
-                    .stream()
-                    .map(phaseChoice -> Utils.splitToList(phaseChoice, '|'))
-                    .map(Collection::stream)
-                    .flatMap(Function.identity())
-                    .collect(Collectors.toList());
-
-            doTransition(jira, issue, phases);
-        }
+            return planner.run(issue, typeConfig.getFlow(phase));
+        });
 
         return null;
     }
 
-    private void doTransition(Jira jira, Issue issue, Collection<String> phases) {
-        Iterable<Transition> transactions = jira.loadTransitionsFor(issue);
-        Iterator<String> phaseIterator = phases.iterator();
-        Transition transitionTo = null;
-        phaseIt:
-        while (phaseIterator.hasNext()) {
-            String phase = phaseIterator.next();
-            for (Transition transition : transactions) {
-                if (transition.getName().equals(phase)) {
-                    transitionTo = transition;
-                    break phaseIt;
-                }
-            }
-        }
-
-        if (transitionTo != null) {
-            log.info("Transition {} - {} to {} {}", issue.getKey(), issue.getSummary(),
-                    transitionTo.getId(), transitionTo.getName());
-            Promise<Void> transitioning = jira.transitionIssue(issue, transitionTo);
-            transitioning.claim();
-
-            doTransition(jira, issue, phases);
-        } else {
-            log.info("No more transition phases for {} - {}", issue.getKey(), issue.getSummary());
-        }
+    /**
+     * How many issues are transitioned at a time, as configured for the auto transition action.
+     */
+    public static BulkTransition.BulkTransitionBuilder bulkTransition(Jira jira) {
+        ActionConfig actionConfig = jira.getConfiguration().actionConfigFor(Name.AUTO_TRANSITION_ISSUE);
+        String parallelism = ActionConfig.propertyOf(actionConfig, PARALLELISM,
+                String.valueOf(BulkTransition.DEFAULT_PARALLELISM));
+        return BulkTransition.builder()
+                .jira(jira)
+                .parallelism(Integer.parseInt(parallelism));
     }
 
 }
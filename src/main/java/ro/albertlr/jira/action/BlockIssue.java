@@ -33,9 +33,10 @@ public class BlockIssue implements Action<Void> {
     @Override
     public Void execute(Jira jira, String... params) {
         String issueKeys = Action.paramAt(params, 0, "issueKey");
+        String jql = Action.paramAt(params, 1, "jql", null);
 
         Name.AUTO_TRANSITION_ISSUE
-                .execute(jira, issueKeys, BLOCKED_PHASE);
+                .execute(jira, issueKeys, BLOCKED_PHASE, jql);
 
         return null;
     }
@@ -20,63 +20,83 @@
 package ro.albertlr.jira.action;
 
 import com.atlassian.jira.rest.client.api.domain.BasicIssue;
-import com.atlassian.jira.rest.client.api.domain.Issue;
-import com.google.common.base.Joiner;
-import com.google.common.base.Throwables;
-import io.atlassian.util.concurrent.Promise;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import ro.albertlr.jira.Action;
-import ro.albertlr.jira.IssueLogger;
+import ro.albertlr.jira.Configuration.ActionConfig;
 import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.clone.AttachmentTransfer;
+import ro.albertlr.jira.clone.BulkClone;
 import ro.albertlr.jira.clone.CloneConfig;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.concurrent.ExecutionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import static java.lang.String.format;
+import static ro.albertlr.jira.Configuration.ActionConfig.propertyOf;
 import static ro.albertlr.jira.Utils.split;
 
+/**
+ * Clones the given (comma separated) issues in bulk, with their subtasks. Returns the keys of the clones by the keys of
+ * their sources (subtasks included).
+ */
 @Slf4j
-public class Clone implements Action<String> {
+public class Clone implements Action<Map<String, String>> {
+    private static final String BATCH_SIZE = "action.clone.batchSize";
+    private static final String PARALLELISM = "action.clone.parallelism";
+    private static final String STAGE_THREADS = "action.clone.stage.%s.threads";
+    private static final String QUEUE_SIZE = "action.clone.stage.queueSize";
+    private static final String SUBTASKS = "action.clone.subtasks.enabled";
+    private static final String ATTACHMENTS = "action.clone.attachments.enabled";
+    private static final String ATTACHMENT_TRANSFERS = "action.clone.attachments.transfers";
+    private static final String ATTACHMENT_ATTEMPTS = "action.clone.attachments.maxAttempts";
+    private static final String ATTACHMENT_BYTES_PER_SECOND = "action.clone.attachments.maxBytesPerSecond";
+
     @Override
-    public String execute(Jira jira, String... params) {
+    public Map<String, String> execute(Jira jira, String... params) {
         String jiraSourceKey = Action.paramAt(params, 0, "sourceKey");
 
-        Iterable<String> sourceKeys = split(jiraSourceKey);
+        Map<String, BasicIssue> clones = bulkClone(jira)
+                .build()
+                .run(Lists.newArrayList(split(jiraSourceKey)));
 
-        Collection<String> clonedKeys = new ArrayList<>(5);
-        for (String sourceKey : sourceKeys) {
-            clonedKeys.add(doCloneIssue(jira, jiraSourceKey));
-        }
-        return Joiner.on(',').join(clonedKeys);
+        return new LinkedHashMap<>(Maps.transformValues(clones, BasicIssue::getKey));
     }
 
-    private static String doCloneIssue(Jira jira, String issueSourceKey) {
-        Issue issue = jira.loadIssue(issueSourceKey);
-
-        log.info("Start cloning {}", issueSourceKey);
-        IssueLogger.shortLog(log, issue);
+    /**
+     * A bulk clone set up from the configuration of the clone action.
+     */
+    public static BulkClone.BulkCloneBuilder bulkClone(Jira jira) {
+        ActionConfig actionConfig = jira.getConfiguration().actionConfigFor(Name.CLONE);
 
-        CloneConfig config = CloneConfig.builder()
-                .cloningAttachments(false)
-                .cloningSubtasks(false)
-                .cloningLinks(true)
-                .build();
-        Promise<BasicIssue> clonePromise = jira.cloneIssue(issue, config);
+        return BulkClone.builder()
+                .jira(jira)
+                .config(cloneConfig(jira).build())
+                .batchSize(Integer.parseInt(propertyOf(actionConfig, BATCH_SIZE, String.valueOf(BulkClone.DEFAULT_BATCH_SIZE))))
+                .parallelism(Integer.parseInt(propertyOf(actionConfig, PARALLELISM, String.valueOf(BulkClone.DEFAULT_PARALLELISM))))
+                .linkThreads(stageThreads(actionConfig, "links"))
+                .attachmentThreads(stageThreads(actionConfig, "attachments"))
+                .subtaskThreads(stageThreads(actionConfig, "subtasks"))
+                .queueSize(Integer.parseInt(propertyOf(actionConfig, QUEUE_SIZE, String.valueOf(BulkClone.DEFAULT_QUEUE_SIZE))))
+                .attachmentTransfers(Integer.parseInt(propertyOf(actionConfig, ATTACHMENT_TRANSFERS, String.valueOf(AttachmentTransfer.DEFAULT_THREADS))))
+                .attachmentAttempts(Integer.parseInt(propertyOf(actionConfig, ATTACHMENT_ATTEMPTS, String.valueOf(AttachmentTransfer.DEFAULT_MAX_ATTEMPTS))))
+                .attachmentBytesPerSecond(Long.parseLong(propertyOf(actionConfig, ATTACHMENT_BYTES_PER_SECOND, "0")));
+    }
 
-        BasicIssue clone = null;
-        try {
-            clone = clonePromise.get();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            Throwables.propagate(e);
-        } catch (ExecutionException e) {
-            Throwables.propagate(e);
-        }
+    /**
+     * What is cloned, as configured for the clone action.
+     */
+    public static CloneConfig.CloneConfigBuilder cloneConfig(Jira jira) {
+        ActionConfig actionConfig = jira.getConfiguration().actionConfigFor(Name.CLONE);
 
-        log.info("Issue {} cloned to {}", issueSourceKey, clone.getKey());
-        IssueLogger.basicLog(log, clone);
+        return CloneConfig.builder()
+                .cloningAttachments(Boolean.parseBoolean(propertyOf(actionConfig, ATTACHMENTS, "false")))
+                .cloningSubtasks(Boolean.parseBoolean(propertyOf(actionConfig, SUBTASKS, "true")))
+                .cloningLinks(true);
+    }
 
-        return clone.getKey();
+    private static int stageThreads(ActionConfig actionConfig, String stage) {
+        return Integer.parseInt(propertyOf(actionConfig, format(STAGE_THREADS, stage), String.valueOf(BulkClone.DEFAULT_PARALLELISM)));
     }
 }
@@ -0,0 +1,88 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.action;
+
+import com.google.common.collect.ImmutableSet;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Action;
+import ro.albertlr.jira.Configuration.ActionConfig;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.Utils;
+import ro.albertlr.jira.link.LinkFilter;
+import ro.albertlr.jira.link.RawLink;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static ro.albertlr.jira.Configuration.ActionConfig.propertyOf;
+
+/**
+ * Deletes the links of the source issues to the target issues (to any issue when there are no targets) that match the
+ * {@link LinkFilter link filter}, if any. The links are read with a few searches and deleted by id through the REST
+ * API, {@code action.delete-links.parallelism} at a time, each retried {@code action.delete-links.retryCount} times.
+ * Returns the number of links deleted.
+ */
+@Slf4j
+public class DeleteLinks implements Action<Integer> {
+    private static final String PARALLELISM = "action.delete-links.parallelism";
+    private static final String RETRY_COUNT = "action.delete-links.retryCount";
+
+    @Override
+    public Integer execute(Jira jira, String... params) {
+        String sourceKeys = Action.paramAt(params, 0, "sourceKey");
+        String targetKeys = Action.paramAt(params, 1, "targetKey", null);
+        String filter = Action.paramAt(params, 2, "filter", null);
+
+        Predicate<RawLink> matches = LinkFilter.compile(filter);
+        if (targetKeys != null && !targetKeys.trim().isEmpty()) {
+            Set<String> targets = ImmutableSet.copyOf(Utils.split(targetKeys));
+            matches = matches.and(link -> targets.contains(link.getOtherKey()));
+        }
+
+        // a link between two of the sources is read from both of them
+        Map<String, RawLink> toDelete = new LinkedHashMap<>();
+        for (List<RawLink> links : RawLink.load(jira, Utils.split(sourceKeys)).values()) {
+            for (RawLink link : links) {
+                if (matches.test(link)) {
+                    toDelete.putIfAbsent(link.getId(), link);
+                }
+            }
+        }
+        log.info("Deleting {} links", toDelete.size());
+
+        ActionConfig actionConfig = jira.getConfiguration().actionConfigFor(Name.DELETE_LINKS);
+        int parallelism = Integer.parseInt(propertyOf(actionConfig, PARALLELISM, "4"));
+        int maxAttempts = Integer.parseInt(propertyOf(actionConfig, RETRY_COUNT, "2")) + 1;
+
+        Utils.ParallelRun run = Utils.forEachInParallel("delete-link-%d", toDelete.values(), parallelism, maxAttempts,
+                link -> {
+                    jira.rest("DELETE", "rest/api/2/issueLink/" + link.getId());
+                    log.debug("Deleted link {} {} {}", link.getIssueKey(), link.getDescription(), link.getOtherKey());
+                },
+                (link, e) -> log.error("Could not delete link {} {} {}", link.getIssueKey(), link.getDescription(),
+                        link.getOtherKey(), e));
+
+        log.info("Deleted {} links, {} failed", run.getSucceeded(), run.getFailed());
+        return run.getSucceeded();
+    }
+}
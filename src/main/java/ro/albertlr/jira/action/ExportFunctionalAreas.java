@@ -0,0 +1,50 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.action;
+
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Action;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.csv.Exporter;
+import ro.albertlr.jira.csv.Output;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static ro.albertlr.jira.Action.paramAt;
+import static ro.albertlr.jira.Utils.split;
+
+@Slf4j
+public class ExportFunctionalAreas implements Action<Void> {
+    @Override
+    public Void execute(Jira jira, String... params) {
+        String issueKeys = paramAt(params, 0, "issueKeys");
+        Output output = Output.fromParams(params, 1);
+
+        try {
+            Exporter.issueWithFunctionalArea(jira, Lists.newArrayList(split(issueKeys)), output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return null;
+    }
+}
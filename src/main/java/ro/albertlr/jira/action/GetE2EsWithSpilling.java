@@ -0,0 +1,220 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.action;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueLink;
+import com.google.common.base.Strings;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableSet;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Action;
+import ro.albertlr.jira.Configuration;
+import ro.albertlr.jira.Configuration.ActionConfig;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.csv.Exporter;
+import ro.albertlr.jira.csv.Exporter.Header;
+import ro.albertlr.jira.csv.Exporter.Record;
+import ro.albertlr.jira.csv.Output;
+import ro.albertlr.jira.graph.DiskKeyQueue;
+import ro.albertlr.jira.graph.DiskKeySet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static ro.albertlr.jira.Action.paramAt;
+import static ro.albertlr.jira.Configuration.ActionConfig.propertyOf;
+import static ro.albertlr.jira.Utils.split;
+import static ro.albertlr.jira.action.GetE2EsRecursively.isDependsOnLink;
+import static ro.albertlr.jira.action.GetE2EsRecursively.isE2e;
+import static ro.albertlr.jira.action.GetE2EsRecursively.isReleasableType;
+import static ro.albertlr.jira.action.GetE2EsRecursively.isTestedByLink;
+
+/**
+ * Recursive E2E lookup (same result as {@link GetE2EsRecursively}) for graphs that do not fit the heap.
+ * <p>
+ * The frontier and the visited keys are kept in memory-mapped files of the spill directory and every loaded issue
+ * is appended to a traversal log (key, summary and the keys it links to) instead of being kept around. Once the
+ * traversal is done the log is streamed to the output (by default {@code output.csv}), dropping the links to issues that turned out not to
+ * be E2Es.
+ */
+@Slf4j
+public class GetE2EsWithSpilling implements Action<Long> {
+    private static final String SEGMENT_SIZE = "action.get-e2es.spill.segmentSize";
+    private static final String INITIAL_CAPACITY = "action.get-e2es.spill.initialCapacity";
+
+    private final Configuration configuration = Configuration.loadConfiguration();
+
+    @Override
+    public Long execute(Jira jira, String... params) {
+        String jiraSourceKey = paramAt(params, 0, "sourceKey");
+        File spillDirectory = new File(paramAt(params, 1, "spillDir"));
+        Output output = Output.fromParams(params, 2);
+
+        checkArgument(spillDirectory.isDirectory() || spillDirectory.mkdirs(),
+                "Cannot use %s as spill directory", spillDirectory);
+
+        ActionConfig config = configuration.actionConfigFor(Name.GET_E2ES);
+        int segmentSize = Integer.parseInt(propertyOf(config, SEGMENT_SIZE, "8388608"));
+        int initialCapacity = Integer.parseInt(propertyOf(config, INITIAL_CAPACITY, "65536"));
+
+        try {
+            File traversalLog = File.createTempFile("e2es-", ".log", spillDirectory);
+            traversalLog.deleteOnExit();
+
+            try (DiskKeySet rejected = new DiskKeySet(spillDirectory, initialCapacity)) {
+                long processed = traverse(jira, split(jiraSourceKey), traversalLog, rejected, segmentSize, initialCapacity);
+
+                Exporter.saveMapping(output, records(traversalLog, rejected), Header.values());
+                return processed;
+            } finally {
+                traversalLog.delete();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long traverse(Jira jira, Iterable<String> rootKeys, File traversalLog, DiskKeySet rejected,
+                                 int segmentSize, int initialCapacity) throws IOException {
+        File spillDirectory = traversalLog.getParentFile();
+        Set<String> roots = ImmutableSet.copyOf(rootKeys);
+        long processed = 0;
+
+        try (DiskKeyQueue frontier = new DiskKeyQueue(File.createTempFile("frontier-", ".queue", spillDirectory), segmentSize);
+             DiskKeySet visited = new DiskKeySet(spillDirectory, initialCapacity);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(traversalLog), 1 << 16))) {
+
+            for (String root : roots) {
+                if (visited.add(root)) {
+                    frontier.offer(root);
+                }
+            }
+
+            while (!frontier.isEmpty()) {
+                String issueKey = frontier.poll();
+                Issue issue = jira.loadIssue(issueKey);
+
+                // only the E2Es are followed further; the sources can be of any type
+                boolean isE2e = isE2e(issue.getIssueType());
+                if (!isE2e && !roots.contains(issueKey)) {
+                    rejected.add(issueKey);
+                    continue;
+                }
+
+                boolean isReleasable = isReleasableType(issue.getIssueType());
+                List<String> linked = new ArrayList<>();
+                for (IssueLink link : Jira.safe(issue.getIssueLinks())) {
+                    if ((isE2e && isDependsOnLink(link.getIssueLinkType()))
+                            || (isReleasable && isTestedByLink(link.getIssueLinkType()))) {
+                        String linkedKey = link.getTargetIssueKey();
+                        linked.add(linkedKey);
+                        if (visited.add(linkedKey)) {
+                            frontier.offer(linkedKey);
+                        }
+                    }
+                }
+
+                out.writeUTF(issueKey);
+                out.writeUTF(Strings.nullToEmpty(issue.getSummary()));
+                out.writeBoolean(isReleasable);
+                out.writeInt(linked.size());
+                for (String linkedKey : linked) {
+                    out.writeUTF(linkedKey);
+                }
+
+                if (++processed % 1000 == 0) {
+                    log.info("Processed {} issues, {} still queued", processed, frontier.size());
+                }
+            }
+        }
+
+        log.info("Processed {} issues", processed);
+        return processed;
+    }
+
+    private static Iterable<Record> records(File traversalLog, DiskKeySet rejected) {
+        return () -> new AbstractIterator<Record>() {
+            private final Deque<Record> pending = new ArrayDeque<>();
+            private DataInputStream in;
+
+            @Override
+            protected Record computeNext() {
+                try {
+                    if (in == null) {
+                        in = new DataInputStream(new BufferedInputStream(new FileInputStream(traversalLog), 1 << 16));
+                    }
+                    while (pending.isEmpty()) {
+                        if (!readIssue()) {
+                            in.close();
+                            return endOfData();
+                        }
+                    }
+                    return pending.poll();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private boolean readIssue() throws IOException {
+                String issueKey;
+                try {
+                    issueKey = in.readUTF();
+                } catch (EOFException e) {
+                    return false;
+                }
+
+                Record.RecordBuilder builder = Record.builder()
+                        .summary(in.readUTF());
+                if (in.readBoolean()) {
+                    builder.ticketId(issueKey);
+                } else {
+                    builder.e2eId(issueKey);
+                }
+
+                int linkedCount = in.readInt();
+                for (int i = 0; i < linkedCount; i++) {
+                    String linkedKey = in.readUTF();
+                    if (!rejected.contains(linkedKey)) {
+                        pending.offer(builder.dependsOnE2EId(linkedKey).build());
+                    }
+                }
+                if (pending.isEmpty()) {
+                    pending.offer(builder.build());
+                }
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.action;
+
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Action;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.graph.GraphSnapshot;
+import ro.albertlr.jira.graph.SnapshotDiff;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static ro.albertlr.jira.Action.paramAt;
+
+@Slf4j
+public class GraphDiff implements Action<SnapshotDiff> {
+    @Override
+    public SnapshotDiff execute(Jira jira, String... params) {
+        File beforeFile = new File(paramAt(params, 0, "beforeSnapshot"));
+        File afterFile = new File(paramAt(params, 1, "afterSnapshot"));
+
+        try {
+            GraphSnapshot before = GraphSnapshot.read(beforeFile);
+            GraphSnapshot after = GraphSnapshot.read(afterFile);
+            log.debug("Comparing {} ({} issues, {} links) to {} ({} issues, {} links)",
+                    beforeFile, before.size(), before.linkCount(), afterFile, after.size(), after.linkCount());
+
+            return SnapshotDiff.between(before, after);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -19,34 +19,62 @@
  */
 package ro.albertlr.jira.action;
 
+import com.atlassian.jira.rest.client.api.domain.input.LinkIssuesInput;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import lombok.extern.slf4j.Slf4j;
 import ro.albertlr.jira.Action;
 import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.link.LinkReplicator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static ro.albertlr.jira.Action.paramAt;
 import static ro.albertlr.jira.Utils.split;
 
+/**
+ * Links every source to every target. The link type is checked once and nothing is loaded per pair: the current links
+ * of the sources are read with a search per {@link Jira#SEARCH_CHUNK_SIZE} sources, links that already exist (or are
+ * journaled as done) are skipped and the others are created by the {@link LinkReplicator}, in parallel and retried.
+ */
 @Slf4j
-public class Link implements Action<Void> {
+public class Link implements Action<LinkReplicator.Result> {
     @Override
-    public Void execute(Jira jira, String... params) {
+    public LinkReplicator.Result execute(Jira jira, String... params) {
         String jiraSourceKey = paramAt(params, 0, "sourceKey");
         String jiraTargetKey = paramAt(params, 1, "targetKey");
         String linkType = paramAt(params, 2, "linkType");
 
         Stopwatch stopwatch = Stopwatch.createStarted();
 
-        Iterable<String> sourceKeys = split(jiraSourceKey);
-        Iterable<String> targetKeys = split(jiraTargetKey);
+        Set<String> sourceKeys = ImmutableSet.copyOf(split(jiraSourceKey));
+        Set<String> targetKeys = ImmutableSet.copyOf(split(jiraTargetKey));
 
-        for (String source : sourceKeys) {
-            for (String target : targetKeys) {
-                jira.link(source, target, linkType);
+        String type = jira.normalizeLinkType(linkType);
+        LinkReplicator.Result result = new LinkReplicator.Result();
+        for (List<String> batch : Iterables.partition(sourceKeys, Jira.SEARCH_CHUNK_SIZE)) {
+            Map<String, Collection<LinkIssuesInput>> linksBySource = new LinkedHashMap<>();
+            for (String source : batch) {
+                List<LinkIssuesInput> links = new ArrayList<>(targetKeys.size());
+                for (String target : targetKeys) {
+                    if (source.equals(target)) {
+                        log.warn("Not linking {} to itself", source);
+                        continue;
+                    }
+                    links.add(new LinkIssuesInput(source, target, type));
+                }
+                linksBySource.put(source, links);
             }
+            result.add(jira.linkReplicator().replicate(linksBySource));
         }
         log.trace("Linking {} to {} took {}", jiraSourceKey, jiraTargetKey, stopwatch);
 
-        return null;
+        return result;
     }
 }
@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.action;
+
+import com.google.common.collect.ImmutableList;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Action;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.csv.Output;
+import ro.albertlr.jira.csv.RecordSink;
+import ro.albertlr.jira.link.LinkFilter;
+import ro.albertlr.jira.link.RawLink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Strings.nullToEmpty;
+import static ro.albertlr.jira.Action.paramAt;
+import static ro.albertlr.jira.Utils.split;
+
+/**
+ * Exports the links of the given issues, or of the issues matching a JQL query, that match the
+ * {@link LinkFilter link filter} to the output, one record per link. Only the {@code issuelinks} field of the issues
+ * is loaded, a search per page of issues, and the matching links are written as the pages come. Returns the number of
+ * exported links.
+ */
+@Slf4j
+public class Links implements Action<Long> {
+    public enum LinkHeader {
+        Ticket,
+        Link_Type,
+        Direction,
+        Linked_Ticket,
+        Linked_Project,
+        Linked_Issue_Type,
+        Linked_Status,
+        Linked_Summary,
+        Link_Id;
+    }
+
+    @Override
+    public Long execute(Jira jira, String... params) {
+        String issueKeys = paramAt(params, 0, "issueKey", null);
+        String filter = paramAt(params, 1, "filter", null);
+        String jql = paramAt(params, 2, "jql", null);
+        Output output = Output.fromParams(params, 3);
+
+        Predicate<RawLink> matches = LinkFilter.compile(filter);
+        try (RecordSink sink = output.open(LinkHeader.values())) {
+            BiConsumer<String, List<RawLink>> export = (issueKey, links) -> {
+                for (RawLink link : links) {
+                    if (matches.test(link)) {
+                        write(sink, link);
+                    }
+                }
+            };
+            if (jql != null) {
+                RawLink.search(jira, jql, export);
+            } else {
+                RawLink.forEach(jira, split(issueKeys), export);
+            }
+            log.info("Exported {} links to {}", sink.getRowCount(), sink.getFiles());
+            return sink.getRowCount();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(RecordSink sink, RawLink link) {
+        try {
+            sink.write(ImmutableList.of(
+                    link.getIssueKey(),
+                    nullToEmpty(link.getDescription()),
+                    link.getDirection().name(),
+                    link.getOtherKey(),
+                    link.getOtherProject(),
+                    nullToEmpty(link.getOtherIssueType()),
+                    nullToEmpty(link.getOtherStatus()),
+                    nullToEmpty(link.getOtherSummary()),
+                    link.getId()
+            ));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
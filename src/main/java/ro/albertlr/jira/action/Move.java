@@ -20,60 +20,60 @@
 package ro.albertlr.jira.action;
 
 import com.atlassian.jira.rest.client.api.domain.BasicIssue;
-import com.atlassian.jira.rest.client.api.domain.Issue;
-import com.atlassian.jira.rest.client.api.domain.Project;
-import com.google.common.base.Throwables;
-import io.atlassian.util.concurrent.Promise;
+import com.atlassian.jira.rest.client.api.domain.BasicProject;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import ro.albertlr.jira.Action;
-import ro.albertlr.jira.IssueLogger;
+import ro.albertlr.jira.Configuration.ActionConfig;
 import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.clone.BulkMove;
 import ro.albertlr.jira.clone.CloneConfig;
 
-import java.util.concurrent.ExecutionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import static ro.albertlr.jira.Configuration.ActionConfig.propertyOf;
+import static ro.albertlr.jira.Utils.split;
+
+/**
+ * Moves the given (comma separated) issues to another project together with their epic children, subtasks and the
+ * issues linked with the link types of {@code action.move.closure.linkTypes}, see {@link BulkMove}. Returns the keys of
+ * the clones by the keys of their sources.
+ */
 @Slf4j
-public class Move implements Action<String> {
+public class Move implements Action<Map<String, String>> {
+    private static final String CHILDREN = "action.move.closure.children";
+    private static final String LINK_TYPES = "action.move.closure.linkTypes";
+    private static final String MAX_ISSUES = "action.move.closure.maxIssues";
+
     @Override
-    public String execute(Jira jira, String... params) {
+    public Map<String, String> execute(Jira jira, String... params) {
         String jiraSourceKey = Action.paramAt(params, 0, "sourceKey");
         String destProjectKey = Action.paramAt(params, 1, "targetProjectKey");
 
-        return doMoveIssue(jira, jiraSourceKey, destProjectKey);
-    }
-
-    private static String doMoveIssue(Jira jira, String issueSourceKey, String destProjectKey) {
-        System.out.printf("Start moving %s to project %s%n", issueSourceKey, destProjectKey);
-
-        Project destProject = jira.loadProject(destProjectKey);
+        BasicProject destProject = jira.metadata().project(destProjectKey).toBasicProject();
         log.info("Destination project: {}", destProject);
 
-        Issue issue = jira.loadIssue(issueSourceKey);
-
-        log.info("Start cloning & moving {}", issueSourceKey);
-        IssueLogger.shortLog(log, issue);
-
-        CloneConfig config = CloneConfig.builder()
-                .cloningAttachments(false)
-                .cloningSubtasks(false)
-                .cloningLinks(true)
-                .build();
-        Promise<BasicIssue> clonePromise = jira.cloneAndMoveIssue(issue, config, destProject);
-
-        BasicIssue clone = null;
-        try {
-            clone = clonePromise.get();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            Throwables.propagate(e);
-        } catch (ExecutionException e) {
-            Throwables.propagate(e.getCause());
+        ActionConfig actionConfig = jira.getConfiguration().actionConfigFor(Name.MOVE);
+        ImmutableSet.Builder<String> linkTypes = ImmutableSet.builder();
+        for (String linkType : split(propertyOf(actionConfig, LINK_TYPES, ""))) {
+            linkTypes.add(jira.normalizeLinkType(linkType));
         }
 
-        log.info("Start cloning {}", issueSourceKey);
-        IssueLogger.basicLog(log, clone);
+        CloneConfig cloneConfig = Clone.cloneConfig(jira).cloningLinks(false).build();
+        Map<String, BasicIssue> moved = BulkMove.builder()
+                .jira(jira)
+                .bulkClone(Clone.bulkClone(jira).config(cloneConfig))
+                .cloningSubtasks(cloneConfig.isCloningSubtasks())
+                .targetProject(destProject)
+                .followingChildren(Boolean.parseBoolean(propertyOf(actionConfig, CHILDREN, "true")))
+                .followedLinkTypes(linkTypes.build())
+                .maxIssues(Integer.parseInt(propertyOf(actionConfig, MAX_ISSUES, String.valueOf(BulkMove.DEFAULT_MAX_ISSUES))))
+                .build()
+                .run(Lists.newArrayList(split(jiraSourceKey)));
 
-        return clone.getKey();
+        return new LinkedHashMap<>(Maps.transformValues(moved, BasicIssue::getKey));
     }
-
 }
@@ -0,0 +1,104 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.action;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.google.common.collect.ImmutableList;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Action;
+import ro.albertlr.jira.Configuration;
+import ro.albertlr.jira.Configuration.ActionConfig;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.csv.Output;
+import ro.albertlr.jira.csv.RecordSink;
+import ro.albertlr.jira.search.IncrementalExport;
+import ro.albertlr.jira.search.IssueFields;
+import ro.albertlr.jira.search.JqlSearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static ro.albertlr.jira.Action.paramAt;
+import static ro.albertlr.jira.Configuration.ActionConfig.propertyOf;
+import static ro.albertlr.jira.Utils.split;
+
+/**
+ * Exports the issues matching a JQL query, projected on the requested fields, to the output. Returns the number of
+ * exported issues. With a checkpoint file only the issues changed since the previous run are fetched and merged into
+ * its output, see {@link IncrementalExport}.
+ */
+@Slf4j
+public class Search implements Action<Long> {
+    private static final String PAGE_SIZE = "action.search.pageSize";
+    private static final String PARALLELISM = "action.search.parallelism";
+    private static final String SAFETY_MARGIN_MINUTES = "action.search.incremental.safetyMarginMinutes";
+
+    private final Configuration configuration = Configuration.loadConfiguration();
+
+    @Override
+    public Long execute(Jira jira, String... params) {
+        String jql = paramAt(params, 0, "jql");
+        String fieldsParam = paramAt(params, 1, "fields", null);
+        String checkpoint = paramAt(params, 2, "checkpoint", null);
+        Output output = Output.fromParams(params, 3);
+
+        List<String> fields = fieldsParam == null
+                ? IssueFields.DEFAULT_FIELDS
+                : ImmutableList.copyOf(split(fieldsParam));
+
+        ActionConfig config = configuration.actionConfigFor(Name.SEARCH);
+        Function<String, JqlSearch> search = query -> JqlSearch.builder()
+                .jira(jira)
+                .jql(query)
+                .fields(IssueFields.toRequest(fields))
+                .pageSize(Integer.parseInt(propertyOf(config, PAGE_SIZE, String.valueOf(JqlSearch.DEFAULT_PAGE_SIZE))))
+                .parallelism(Integer.parseInt(propertyOf(config, PARALLELISM, String.valueOf(JqlSearch.DEFAULT_PARALLELISM))))
+                .build();
+
+        try {
+            if (checkpoint != null) {
+                return IncrementalExport.builder()
+                        .search(search)
+                        .jql(jql)
+                        .fields(fields)
+                        .output(output)
+                        .checkpointFile(new File(checkpoint))
+                        .safetyMarginMillis(TimeUnit.MINUTES.toMillis(
+                                Long.parseLong(propertyOf(config, SAFETY_MARGIN_MINUTES, "5"))))
+                        .build()
+                        .run();
+            }
+
+            try (RecordSink sink = output.open(fields.toArray(new String[0]))) {
+                for (Issue issue : search.apply(jql)) {
+                    sink.write(IssueFields.project(issue, fields));
+                }
+                log.info("Exported {} issues matching {} to {}", sink.getRowCount(), jql, sink.getFiles());
+                return sink.getRowCount();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -23,77 +23,201 @@ import com.atlassian.jira.rest.client.api.domain.Issue;
 import com.atlassian.jira.rest.client.api.domain.Transition;
 import com.google.common.collect.Lists;
 import io.atlassian.util.concurrent.Promise;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ro.albertlr.jira.Action;
 import ro.albertlr.jira.Configuration;
+import ro.albertlr.jira.Configuration.ActionConfig;
 import ro.albertlr.jira.Configuration.IssueTypeConfig;
 import ro.albertlr.jira.Jira;
-import ro.albertlr.jira.Utils;
+import ro.albertlr.jira.workflow.BulkTransition;
 
-import java.util.Collection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.InputMismatchException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static ro.albertlr.jira.action.TransitionIssue.ChoiceStrategy.CONFIG_AND_BLOCK;
 import static ro.albertlr.jira.action.TransitionIssue.ChoiceStrategy.TERMINAL;
 import static ro.albertlr.jira.action.BlockIssue.BLOCKED_PHASE;
 
+/**
+ * Transitions issues as the choice strategy says: by asking on the terminal or by taking the block flow configured for
+ * their type (issues transitioned concurrently, see {@link BulkTransition}, and skipped when none of their transitions
+ * is in the flow). The issues are given by keys or, when the third parameter is set, by a JQL query.
+ * <p>
+ * On the terminal the transitions of the next {@code action.advance-issue.prefetch} issues are loaded while the user
+ * chooses, and the chosen transitions are sent without waiting for them, so the prompts follow each other without
+ * network waits; transitions that failed are reported before the next prompt.
+ */
 @Slf4j
 public class TransitionIssue implements Action<Void> {
+    private static final String PREFETCH = "action.advance-issue.prefetch";
+    private static final int DEFAULT_PREFETCH = 5;
 
     @Override
     public Void execute(Jira jira, String... params) {
         String issueKeys = Action.paramAt(params, 0, "issueKey");
         String chooseStrategyParam = Action.paramAt(params, 1, "chooseStrategy", "TERMINAL");
+        String jql = Action.paramAt(params, 2, "jql", null);
 
         ChoiceStrategy choiceStrategy = ChoiceStrategy.valueOf(chooseStrategyParam);
+        Iterable<Issue> issues = BulkTransition.issues(jira, issueKeys, jql);
 
-        issues:
-        for (String issueKey : Utils.split(issueKeys)) {
-            // get issue
-            Issue issue = jira.loadIssue(issueKey);
-            // get transitions of issue
-            List<Transition> transitions = Lists.newArrayList(jira.loadTransitionsFor(issue));
+        if (TERMINAL.equals(choiceStrategy)) {
+            ActionConfig actionConfig = jira.getConfiguration().actionConfigFor(Name.ADVANCE_ISSUE);
+            int prefetch = Integer.parseInt(
+                    ActionConfig.propertyOf(actionConfig, PREFETCH, String.valueOf(DEFAULT_PREFETCH)));
+            transitionInteractively(jira, issues, Math.max(1, prefetch));
+            return null;
+        }
 
-            // choose where to go
-            Transition chosen = null;
-            while (chosen == null) {
-                chosen = choiceStrategy.choose(issue, transitions);
-
-                // transition the ticket
-                if (chosen != null
-                        && !CANCEL_TRANSITION.equals(chosen)
-                        && !SKIP_TRANSITION.equals(chosen)) {
-                    Promise<Void> transitioning = jira.transitionIssue(issue, chosen);
-                    transitioning.claim();
-                    log.info("Issue {} - {} moved to {} - {}", issueKey, issue.getSummary(), chosen.getId(), chosen.getName());
-
-                    if (CONFIG_AND_BLOCK.equals(choiceStrategy)
-                            && chosen.getName().contains("Blocked")) {
-                        chosen = null;
-                    }
-                } else if (CANCEL_TRANSITION.equals(chosen)) {
-                    // stop transitioning
-                    break issues;
-                } else if (SKIP_TRANSITION.equals(chosen)) {
-                    // skip transitioning
-                    continue issues;
-                } else {
-                    chosen = TERMINAL.choose(issue, transitions);
-                    if (chosen != null) {
-                        Promise<Void> transitioning = jira.transitionIssue(issue, chosen);
-                        transitioning.claim();
-                        log.info("Issue {} - {} moved to {} - {}", issueKey, issue.getSummary(), chosen.getId(), chosen.getName());
+        BulkTransition bulk = AutoTransitionIssue.bulkTransition(jira).build();
+        bulk.run(issues, issue -> transition(jira, issue, choiceStrategy, bulk));
+
+        return null;
+    }
+
+    @AllArgsConstructor
+    private static class Prefetched {
+        private final Issue issue;
+        private final Promise<Iterable<Transition>> transitions;
+    }
+
+    @AllArgsConstructor
+    private static class Submitted {
+        private final Issue issue;
+        private final Transition transition;
+        private final Promise<Void> result;
+    }
+
+    private static void transitionInteractively(Jira jira, Iterable<Issue> issues, int prefetch) {
+        Iterator<Issue> source = issues.iterator();
+        Deque<Prefetched> ahead = new ArrayDeque<>();
+        List<Submitted> submitted = new ArrayList<>();
+        int moved = 0;
+        int failed = 0;
+
+        prefetch(jira, source, ahead, prefetch);
+        while (!ahead.isEmpty()) {
+            Prefetched next = ahead.poll();
+            // keeps loading the following issues while the user chooses
+            prefetch(jira, source, ahead, prefetch);
+
+            for (Iterator<Submitted> pending = submitted.iterator(); pending.hasNext(); ) {
+                Submitted transition = pending.next();
+                if (transition.result.isDone()) {
+                    pending.remove();
+                    if (completed(transition)) {
+                        moved++;
+                    } else {
+                        failed++;
                     }
                 }
             }
+
+            Issue issue = next.issue;
+            List<Transition> transitions;
+            try {
+                transitions = Lists.newArrayList(next.transitions.claim());
+            } catch (RuntimeException e) {
+                log.error("Could not load the transitions of {}, skipping it", issue.getKey(), e);
+                continue;
+            }
+
+            System.out.printf("%s - %s (%s)%n", issue.getKey(), issue.getSummary(), issue.getStatus().getName());
+            Transition chosen = null;
+            while (chosen == null) {
+                chosen = TERMINAL.choose(issue, transitions);
+            }
+            if (CANCEL_TRANSITION.equals(chosen)) {
+                break;
+            }
+            if (!SKIP_TRANSITION.equals(chosen)) {
+                submitted.add(new Submitted(issue, chosen, jira.transitionIssue(issue, chosen)));
+            }
         }
 
-        return null;
+        for (Submitted transition : submitted) {
+            if (completed(transition)) {
+                moved++;
+            } else {
+                failed++;
+            }
+        }
+        log.info("Moved {} issues, {} transitions failed", moved, failed);
+    }
+
+    private static void prefetch(Jira jira, Iterator<Issue> source, Deque<Prefetched> ahead, int prefetch) {
+        while (ahead.size() < prefetch && source.hasNext()) {
+            Issue issue = source.next();
+            ahead.add(new Prefetched(issue, jira.issueClient().getTransitions(issue)));
+        }
+    }
+
+    /**
+     * @return whether the transition succeeded
+     */
+    private static boolean completed(Submitted transition) {
+        Issue issue = transition.issue;
+        try {
+            transition.result.claim();
+            log.info("Issue {} - {} moved to {} - {}", issue.getKey(), issue.getSummary(),
+                    transition.transition.getId(), transition.transition.getName());
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Could not move {} to {}: {}", issue.getKey(), transition.transition.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of transitions done
+     */
+    private static int transition(Jira jira, Issue issue, ChoiceStrategy choiceStrategy, BulkTransition bulk) {
+        String issueKey = issue.getKey();
+        // get transitions of issue
+        List<Transition> transitions = Lists.newArrayList(jira.loadTransitionsFor(issue));
+
+        int done = 0;
+        // choose where to go
+        Transition chosen = null;
+        while (chosen == null) {
+            chosen = choiceStrategy.choose(issue, transitions);
+
+            // transition the ticket
+            if (chosen != null
+                    && !CANCEL_TRANSITION.equals(chosen)
+                    && !SKIP_TRANSITION.equals(chosen)) {
+                Promise<Void> transitioning = jira.transitionIssue(issue, chosen);
+                transitioning.claim();
+                done++;
+                log.info("Issue {} - {} moved to {} - {}", issueKey, issue.getSummary(), chosen.getId(), chosen.getName());
+
+                if (CONFIG_AND_BLOCK.equals(choiceStrategy)
+                        && chosen.getName().contains("Blocked")) {
+                    chosen = null;
+                }
+            } else if (CANCEL_TRANSITION.equals(chosen)) {
+                // stop transitioning
+                bulk.cancel();
+                return done;
+            } else if (SKIP_TRANSITION.equals(chosen)) {
+                // skip transitioning
+                return done;
+            } else {
+                // the issues are transitioned concurrently, so they cannot share the terminal
+                log.warn("No transition of {} - {} ({}) is in its flow, skipping it; transition it on the terminal",
+                        issueKey, issue.getSummary(), issue.getStatus().getName());
+                return done;
+            }
+        }
+        return done;
     }
 
     private static Transition CANCEL_TRANSITION = new Transition("Cancel", -1, Collections.emptyList());
@@ -101,14 +225,14 @@ public class TransitionIssue implements Action<Void> {
 
     public enum ChoiceStrategy {
         TERMINAL {
+            private final Scanner inputReader = new Scanner(System.in);
+
             @Override
             public Transition choose(Issue issue, List<Transition> transitions) {
                 List<String> options = transitions.stream()
                         .map(transition -> transition.getId() + " " + transition.getName())
                         .collect(Collectors.toList());
 
-                Scanner inputReader = new Scanner(System.in);
-
                 System.out.printf("Choose one of the following options%n");
                 System.out.printf(" -1) skip%n");
                 System.out.printf("  0) cancel%n");
@@ -135,7 +259,7 @@ public class TransitionIssue implements Action<Void> {
 
                     return chosen;
                 } catch (InputMismatchException exception) {
-                    exception.printStackTrace();
+                    System.out.printf("Not a number: %s%n", inputReader.next());
                     return null;
                 }
             }
@@ -147,24 +271,7 @@ public class TransitionIssue implements Action<Void> {
             @Override
             public Transition choose(Issue issue, List<Transition> transitions) {
                 IssueTypeConfig typeConfig = configuration.configFor(issue.getIssueType().getName());
-                Collection<String> phases = typeConfig.getTransitionFlow(BLOCKED_PHASE)
-                        .stream()
-                        .map(phaseChoice -> Utils.splitToList(phaseChoice, '|'))
-                        .map(Collection::stream)
-                        .flatMap(Function.identity())
-                        .collect(Collectors.toList());
-
-                return transitions.stream()
-                        .filter(transition -> {
-                            for (String phase : phases) {
-                                if (transition.getName().equals(phase)) {
-                                    return true;
-                                }
-                            }
-                            return false;
-                        })
-                        .findFirst()
-                        .orElse(null);
+                return typeConfig.getFlow(BLOCKED_PHASE).choose(transitions, Transition::getName);
             }
         };
 
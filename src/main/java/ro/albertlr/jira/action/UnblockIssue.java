@@ -33,9 +33,10 @@ public class UnblockIssue implements Action<Void> {
     @Override
     public Void execute(Jira jira, String... params) {
         String issueKeys = Action.paramAt(params, 0, "issueKey");
+        String jql = Action.paramAt(params, 1, "jql", null);
 
         Name.AUTO_TRANSITION_ISSUE
-                .execute(jira, issueKeys, UNBLOCKED_PHASE);
+                .execute(jira, issueKeys, UNBLOCKED_PHASE, jql);
 
         return null;
     }
@@ -22,22 +22,33 @@ package ro.albertlr.jira.clone;
 import com.atlassian.jira.rest.client.api.domain.Attachment;
 import com.atlassian.jira.rest.client.api.domain.BasicIssue;
 import com.atlassian.jira.rest.client.api.domain.Issue;
-import com.atlassian.jira.rest.client.api.domain.input.AttachmentInput;
+import com.google.common.collect.Lists;
 import io.atlassian.util.concurrent.Promise.TryConsumer;
 import lombok.extern.slf4j.Slf4j;
 import ro.albertlr.jira.Jira;
 
 import javax.annotation.Nonnull;
-import java.io.IOException;
-import java.util.stream.StreamSupport;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+import static ro.albertlr.jira.Jira.safe;
+
+/**
+ * Copies the attachments of the source to the clone through an {@link AttachmentTransfer}. Attachments already on
+ * the clone (same name and size, e.g. from a previous, interrupted run) are not copied again.
+ */
 @Slf4j
 public class AddAttachments implements TryConsumer<BasicIssue> {
-    private Jira jira;
+    private final Jira jira;
+    private final AttachmentTransfer transfer;
     private final Issue source;
 
-    public AddAttachments(Jira jira, Issue source) {
+    public AddAttachments(Jira jira, AttachmentTransfer transfer, Issue source) {
         this.jira = jira;
+        this.transfer = transfer;
         this.source = source;
     }
 
@@ -48,29 +59,37 @@ public class AddAttachments implements TryConsumer<BasicIssue> {
 
     @Override
     public void accept(BasicIssue basicIssue) {
-        if (basicIssue instanceof Issue) {
-            log.info("Adding attachments");
-            jira.issueClient()
-                    .addAttachments(
-                            ((Issue) basicIssue).getAttachmentsUri(),
-                            toAttachmentInputs(source.getAttachments())
-                    );
+        List<Attachment> attachments = Lists.newArrayList(safe(source.getAttachments()));
+        if (attachments.isEmpty()) {
+            return;
         }
-    }
 
-    AttachmentInput[] toAttachmentInputs(Iterable<Attachment> attachments) {
-        return StreamSupport.stream(attachments.spliterator(), false)
-                .map(this::toAttachmentInput)
-                .toArray(AttachmentInput[]::new);
-    }
+        Issue target = basicIssue instanceof Issue ? (Issue) basicIssue : jira.loadIssue(basicIssue.getKey());
+        Set<String> onTarget = new HashSet<>();
+        for (Attachment attachment : safe(target.getAttachments())) {
+            onTarget.add(nameAndSize(attachment));
+        }
 
-    AttachmentInput toAttachmentInput(Attachment attachment) {
-        try {
-            return new AttachmentInput(attachment.getFilename(), attachment.getContentUri().toURL().openStream());
-        } catch (IOException e) {
-            log.warn("Could not convert attachment {}", attachment.getFilename(), e);
-            return null;
+        log.info("Adding {} attachments from {} to {}", attachments.size(), source.getKey(), target.getKey());
+        List<CompletableFuture<?>> copies = new ArrayList<>(attachments.size());
+        for (Attachment attachment : attachments) {
+            if (onTarget.contains(nameAndSize(attachment))) {
+                log.info("Attachment {} is already on {}", attachment.getFilename(), target.getKey());
+                continue;
+            }
+            copies.add(
+                    transfer.copy(attachment, target.getAttachmentsUri())
+                            .exceptionally(failure -> {
+                                log.error("Could not copy attachment {} from {} to {}",
+                                        attachment.getFilename(), source.getKey(), target.getKey(), failure);
+                                return null;
+                            })
+            );
         }
+        CompletableFuture.allOf(copies.toArray(new CompletableFuture[0])).join();
     }
 
+    private static String nameAndSize(Attachment attachment) {
+        return attachment.getFilename() + ":" + attachment.getSize();
+    }
 }
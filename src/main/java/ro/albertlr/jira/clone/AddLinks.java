@@ -24,25 +24,23 @@ import com.atlassian.jira.rest.client.api.domain.Issue;
 import com.atlassian.jira.rest.client.api.domain.IssueLink;
 import com.atlassian.jira.rest.client.api.domain.IssueLinkType.Direction;
 import com.atlassian.jira.rest.client.api.domain.input.LinkIssuesInput;
-import com.google.common.io.Files;
 import io.atlassian.util.concurrent.Promise.TryConsumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.collections.api.tuple.Pair;
 import org.eclipse.collections.impl.tuple.Tuples;
 import ro.albertlr.jira.Action.Name;
-import ro.albertlr.jira.CLI;
 import ro.albertlr.jira.Configuration;
 import ro.albertlr.jira.Configuration.ActionConfig;
 import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.link.LinkPlan;
+import ro.albertlr.jira.link.LinkReplicator;
 
 import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Map;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -81,18 +79,17 @@ public class AddLinks implements TryConsumer<BasicIssue> {
     private Strategy selectStartegy(String issueKey) {
         Strategy strategy;
         ActionConfig config = configuration.getActionConfigs().get(Name.CLONE);
-        String script = null;
-        if ("generateScript".equals(config.getProperty("action.clone.links.strategy"))) {
-            script =
+        String linksStrategy = config.getProperty("action.clone.links.strategy");
+        if ("generatePlan".equals(linksStrategy) || "generateScript".equals(linksStrategy)) {
+            String plan =
                     String.format(
-                            config.getProperty("action.clone.links.strategy.generateScript.script", "links-for-%s.sh"),
-                            issueKey
+                            config.getProperty("action.clone.links.strategy.generatePlan.plan", "links-for-%s.jsonl"),
+                            source.getKey()
                     );
-            strategy = new GenerateScriptStrategy(script);
-        } else if ("invokeInSameProcess".equals(config.getProperty("action.clone.links.strategy"))) {
-            strategy = new InvokeInSameJvmStrategy();
+            strategy = new GeneratePlanStrategy(issueKey, plan);
         } else {
-            strategy = new LinkIssueOnCollectStrategy(jira);
+            // invokeInSameProcess
+            strategy = new ReplicateStrategy(issueKey);
         }
         return strategy;
     }
@@ -111,67 +108,44 @@ public class AddLinks implements TryConsumer<BasicIssue> {
     }
 
 
+    /**
+     * Creates the missing links right away, in this process, see {@link LinkReplicator}.
+     */
     @RequiredArgsConstructor
-    private class InvokeInSameJvmStrategy implements Strategy {
-        private final Collection<LinkIssuesInput> linksToExecute = new ArrayList<>();
+    private class ReplicateStrategy implements Strategy {
+        private final String issueKey;
+        private final Collection<LinkIssuesInput> links = new ArrayList<>();
 
         public void collect(LinkIssuesInput link) {
-            linksToExecute.add(link);
+            links.add(link);
         }
 
         @Override
         public void execute() {
-            for (LinkIssuesInput link : linksToExecute) {
-                CLI.execute(
-                        "--action", "link",
-                        "--source", link.getFromIssueKey(),
-                        "--target", link.getToIssueKey(),
-                        "--link-type", unnormalizeLinkType(link.getLinkType()));
-            }
+            jira.linkReplicator().replicate(issueKey, links);
         }
     }
 
+    /**
+     * Saves the links to a {@link LinkPlan} to be reviewed and applied later with the {@code apply-plan} action.
+     */
     @RequiredArgsConstructor
-    private class LinkIssueOnCollectStrategy implements Strategy {
-        private final Jira jira;
+    private class GeneratePlanStrategy implements Strategy {
+        private final String issueKey;
+        private final String plan;
+        private final Collection<LinkPlan.Entry> entries = new ArrayList<>();
 
         public void collect(LinkIssuesInput link) {
-            jira.link(link);
-        }
-
-        @Override
-        public void execute() {
-            // do nothing
-        }
-    }
-
-    @RequiredArgsConstructor
-    private class GenerateScriptStrategy implements Strategy {
-        private final StringBuilder commandBuilder = new StringBuilder(512);
-        private final String script;
-
-        public void collect(LinkIssuesInput link) {
-            StringBuilder command = new StringBuilder(32);
-            command.append("./jira-link.sh ")
-                    .append(link.getFromIssueKey())
-                    .append(" ")
-                    .append(link.getToIssueKey())
-                    .append(" \"")
-                    .append(unnormalizeLinkType(link.getLinkType()))
-                    .append("\"")
-                    .append(System.lineSeparator());
-
-            log.info("$ {}", command);
-
-            commandBuilder.append(command);
+            entries.add(LinkPlan.Entry.of(issueKey, link));
         }
 
         @Override
         public void execute() {
             try {
-                Files.write(commandBuilder, new File(script), StandardCharsets.UTF_8);
+                LinkPlan.write(new File(plan), entries);
+                log.info("Saved {} links of {} to {}", entries.size(), issueKey, plan);
             } catch (IOException e) {
-                log.error("Could not write script {}", script, e);
+                log.error("Could not write link plan {}", plan, e);
             }
         }
     }
@@ -182,13 +156,4 @@ public class AddLinks implements TryConsumer<BasicIssue> {
         void execute();
     }
 
-    private String unnormalizeLinkType(String linkType) {
-        for (Map.Entry<String, String> type : configuration.getLinkTypes().entrySet()) {
-            if (type.getKey().equals(linkType) || type.getValue().equals(linkType)) {
-                return type.getKey();
-            }
-        }
-        return linkType;
-    }
-
 }
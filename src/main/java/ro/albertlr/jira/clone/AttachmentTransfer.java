@@ -0,0 +1,148 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.clone;
+
+import com.atlassian.jira.rest.client.api.domain.Attachment;
+import com.github.rholder.retry.RetryException;
+import com.github.rholder.retry.Retryer;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.Utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * Copies attachments from one issue to another with bounded memory: every file is streamed (authenticated, over a
+ * plain connection) into a temporary file, then uploaded from that file. At most {@code threads} files are in transfer
+ * at a time and, if set, the download bandwidth is capped. Each file is retried on its own.
+ */
+@Slf4j
+public class AttachmentTransfer implements AutoCloseable {
+    public static final int DEFAULT_THREADS = 2;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Jira jira;
+    private final ExecutorService executor;
+    private final int maxAttempts;
+    private final RateLimiter bandwidth;
+
+    @Getter
+    private final AtomicLong copiedFiles = new AtomicLong();
+    @Getter
+    private final AtomicLong copiedBytes = new AtomicLong();
+    @Getter
+    private final AtomicLong failedFiles = new AtomicLong();
+
+    /**
+     * @param maxBytesPerSecond download bandwidth cap, 0 for none
+     */
+    public AttachmentTransfer(Jira jira, int threads, int maxAttempts, long maxBytesPerSecond) {
+        this.jira = jira;
+        this.executor = Executors.newFixedThreadPool(
+                threads,
+                new ThreadFactoryBuilder().setNameFormat("attachment-transfer-%d").setDaemon(true).build()
+        );
+        this.maxAttempts = maxAttempts;
+        this.bandwidth = maxBytesPerSecond > 0 ? RateLimiter.create(maxBytesPerSecond) : null;
+    }
+
+    /**
+     * Copies the attachment to the issue whose attachments are at {@code targetAttachmentsUri}.
+     */
+    public CompletableFuture<Void> copy(Attachment attachment, URI targetAttachmentsUri) {
+        return CompletableFuture.supplyAsync(() -> {
+            Retryer<Void> retryer = Utils.retryer(maxAttempts);
+            try {
+                return retryer.call(() -> transfer(attachment, targetAttachmentsUri));
+            } catch (ExecutionException | RetryException e) {
+                failedFiles.incrementAndGet();
+                throw new IllegalStateException(format("Could not copy attachment %s", attachment.getFilename()), e);
+            }
+        }, executor);
+    }
+
+    private Void transfer(Attachment attachment, URI targetAttachmentsUri) throws IOException {
+        Path file = Files.createTempFile("attachment-", ".tmp");
+        try {
+            download(attachment, file);
+            try (InputStream in = Files.newInputStream(file)) {
+                jira.issueClient()
+                        .addAttachment(targetAttachmentsUri, in, attachment.getFilename())
+                        .claim();
+            }
+
+            long size = Files.size(file);
+            log.debug("Copied attachment {} ({} bytes)", attachment.getFilename(), size);
+            copiedFiles.incrementAndGet();
+            copiedBytes.addAndGet(size);
+            return null;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void download(Attachment attachment, Path file) throws IOException {
+        try (InputStream in = jira.download(attachment.getContentUri());
+             OutputStream out = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                if (bandwidth != null && read > 0) {
+                    bandwidth.acquire(read);
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    public String summary() {
+        return format("%d attachments (%d bytes) copied, %d failed",
+                copiedFiles.get(), copiedBytes.get(), failedFiles.get());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.HOURS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+}
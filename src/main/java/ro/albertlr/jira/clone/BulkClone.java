@@ -0,0 +1,301 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.clone;
+
+import com.atlassian.jira.rest.client.api.domain.BasicIssue;
+import com.atlassian.jira.rest.client.api.domain.BasicProject;
+import com.atlassian.jira.rest.client.api.domain.BulkOperationErrorResult;
+import com.atlassian.jira.rest.client.api.domain.BulkOperationResult;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.Subtask;
+import com.atlassian.jira.rest.client.api.domain.input.IssueInput;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.journal.Journal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static ro.albertlr.jira.Jira.safe;
+
+/**
+ * Clones many issues at once, as a pipeline of stages each with its own threads and bounded queue:
+ * <ol>
+ * <li>create: builds the inputs of {@code batchSize} sources and creates their clones with one bulk create request;
+ * the created issues are mapped back to their sources (a bulk create returns the created issues in the order of the
+ * successful inputs)</li>
+ * <li>subtasks, links and attachments: as soon as a batch is created its clones are handed to these stages, so the
+ * next batch is being created while the links and attachments of the previous one are copied</li>
+ * </ol>
+ * The subtasks of a clone are created in bulk under it (see {@link CloneSubtasks}) and then go through the links and
+ * attachments stages like any other clone.
+ * The sources themselves are loaded upfront with a few bulk searches. A throughput summary per stage is logged at the
+ * end.
+ */
+@Slf4j
+@Builder
+public class BulkClone {
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_QUEUE_SIZE = 100;
+
+    private final Jira jira;
+    private final CloneConfig config;
+    /**
+     * Project to create the clones in; {@code null} clones every issue in its own project.
+     */
+    private final BasicProject targetProject;
+    @Builder.Default
+    private final int batchSize = DEFAULT_BATCH_SIZE;
+    /**
+     * Number of bulk create requests in flight.
+     */
+    @Builder.Default
+    private final int parallelism = DEFAULT_PARALLELISM;
+    @Builder.Default
+    private final int linkThreads = DEFAULT_PARALLELISM;
+    @Builder.Default
+    private final int attachmentThreads = DEFAULT_PARALLELISM;
+    @Builder.Default
+    private final int subtaskThreads = DEFAULT_PARALLELISM;
+    /**
+     * Capacity of the queue in front of each stage.
+     */
+    @Builder.Default
+    private final int queueSize = DEFAULT_QUEUE_SIZE;
+    /**
+     * Number of attachment files in transfer at a time, over all the issues.
+     */
+    @Builder.Default
+    private final int attachmentTransfers = AttachmentTransfer.DEFAULT_THREADS;
+    @Builder.Default
+    private final int attachmentAttempts = AttachmentTransfer.DEFAULT_MAX_ATTEMPTS;
+    /**
+     * Download bandwidth cap of the attachment transfers, 0 for none.
+     */
+    private final long attachmentBytesPerSecond;
+    /**
+     * Keys of the issues cloned earlier in the same job, by the key of their source; fields referring to them are
+     * rewritten to refer to the clones.
+     */
+    @Builder.Default
+    private final Map<String, String> newKeys = Collections.emptyMap();
+
+    /**
+     * @return the clones by the key of their source, in the order of the sources; sources that could not be cloned
+     * are missing
+     */
+    public Map<String, BasicIssue> run(Collection<String> sourceKeys) {
+        Map<String, Issue> sources = jira.loadIssues(sourceKeys, Jira.ALL_FIELDS);
+        for (String sourceKey : sourceKeys) {
+            if (!sources.containsKey(sourceKey)) {
+                log.error("Could not load {}, it will not be cloned", sourceKey);
+            }
+        }
+        return run(sources);
+    }
+
+    /**
+     * @param sources the issues to clone, loaded with all their fields, by key
+     */
+    public Map<String, BasicIssue> run(Map<String, Issue> sources) {
+        PipelineStage create = new PipelineStage("create", parallelism, queueSize);
+        PipelineStage subtasks = new PipelineStage("subtasks", subtaskThreads, queueSize);
+        PipelineStage links = new PipelineStage("links", linkThreads, queueSize);
+        PipelineStage attachments = new PipelineStage("attachments", attachmentThreads, queueSize);
+        AttachmentTransfer transfer = config.isCloningAttachments()
+                ? new AttachmentTransfer(jira, attachmentTransfers, attachmentAttempts, attachmentBytesPerSecond)
+                : null;
+
+        Map<String, BasicIssue> created = new ConcurrentHashMap<>();
+        BiConsumer<Issue, BasicIssue> replicate = (source, issue) -> {
+            if (config.isCloningLinks()) {
+                links.submit(source.getKey(), () -> new AddLinks(jira, source, jira.getConfiguration()).accept(issue));
+            }
+            if (config.isCloningAttachments()) {
+                attachments.submit(source.getKey(), () -> new AddAttachments(jira, transfer, source).accept(issue));
+            }
+        };
+
+        for (List<Issue> batch : Lists.partition(withoutSubtasksOfOthers(sources.values()), batchSize)) {
+            create.submit(keysOf(batch).toString(), () -> {
+                Map<Issue, BasicIssue> clones = create(batch);
+                for (Map.Entry<Issue, BasicIssue> clone : clones.entrySet()) {
+                    Issue source = clone.getKey();
+                    BasicIssue issue = clone.getValue();
+                    created.put(source.getKey(), issue);
+
+                    if (config.isCloningSubtasks() && !Iterables.isEmpty(safe(source.getSubtasks()))) {
+                        subtasks.submit(source.getKey(), () ->
+                                new CloneSubtasks(jira, source, config, targetProject, batchSize, (subtask, subtaskClone) -> {
+                                    created.put(subtask.getKey(), subtaskClone);
+                                    replicate.accept(subtask, subtaskClone);
+                                }).accept(issue)
+                        );
+                    }
+                    replicate.accept(source, issue);
+                }
+            });
+        }
+
+        // in the order the stages feed each other
+        create.awaitCompletion();
+        subtasks.awaitCompletion();
+        links.awaitCompletion();
+        attachments.awaitCompletion();
+        if (transfer != null) {
+            transfer.close();
+        }
+
+        log.info("Cloned {} of {} issues", created.size(), sources.size());
+        for (PipelineStage stage : new PipelineStage[]{create, subtasks, links, attachments}) {
+            log.info("    {}", stage.summary());
+        }
+        if (transfer != null) {
+            log.info("    {}", transfer.summary());
+        }
+        if (config.isCloningLinks()) {
+            log.info("    {}", jira.linkReplicator().summary());
+        }
+
+        Map<String, BasicIssue> clones = new LinkedHashMap<>();
+        for (String sourceKey : sources.keySet()) {
+            if (created.containsKey(sourceKey)) {
+                clones.put(sourceKey, created.remove(sourceKey));
+            }
+        }
+        // then the subtasks
+        clones.putAll(created);
+        return clones;
+    }
+
+    /**
+     * When subtasks are cloned with their parent, a subtask given together with its parent is only cloned as part of
+     * its parent.
+     */
+    private List<Issue> withoutSubtasksOfOthers(Collection<Issue> sources) {
+        if (!config.isCloningSubtasks()) {
+            return new ArrayList<>(sources);
+        }
+        Set<String> subtaskKeys = new HashSet<>();
+        for (Issue source : sources) {
+            for (Subtask subtask : safe(source.getSubtasks())) {
+                subtaskKeys.add(subtask.getIssueKey());
+            }
+        }
+        return sources.stream()
+                .filter(source -> !subtaskKeys.contains(source.getKey()))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Issue, BasicIssue> create(List<Issue> batch) {
+        BasicProject project = targetProject;
+        return create(jira, batch, source ->
+                jira.cloneInput(source, config, project != null ? project : source.getProject(), null, newKeys));
+    }
+
+    /**
+     * Clones the sources with one bulk create request, recording the clones in the {@link Journal}. Sources the journal
+     * already has a clone of are not cloned again, their clone is returned as it is.
+     *
+     * @param input builds the clone input of a source
+     */
+    static Map<Issue, BasicIssue> create(Jira jira, List<Issue> sources, Function<Issue, IssueInput> input) {
+        Journal journal = jira.journal();
+        Map<Issue, BasicIssue> clones = new LinkedHashMap<>();
+        List<Issue> prepared = new ArrayList<>(sources.size());
+        List<IssueInput> inputs = new ArrayList<>(sources.size());
+        for (Issue source : sources) {
+            String cloned = journal.resultOf(Journal.CLONE, source.getKey());
+            if (cloned != null) {
+                log.info("Issue {} was already cloned to {}", source.getKey(), cloned);
+                // only the key is known, which is all the next stages need
+                clones.put(source, new BasicIssue(null, cloned, null));
+                continue;
+            }
+            try {
+                inputs.add(input.apply(source));
+                prepared.add(source);
+            } catch (RuntimeException e) {
+                log.error("Could not prepare the clone of {}", source.getKey(), e);
+            }
+        }
+        if (inputs.isEmpty()) {
+            return clones;
+        }
+
+        journal.planned(Journal.CLONE, keysOf(prepared));
+        Map<Issue, BasicIssue> created = mapToSources(
+                prepared,
+                jira.issueClient().createIssues(inputs).claim()
+        );
+        Map<String, String> createdKeys = new LinkedHashMap<>();
+        created.forEach((source, clone) -> createdKeys.put(source.getKey(), clone.getKey()));
+        journal.done(Journal.CLONE, createdKeys);
+
+        clones.putAll(created);
+        return clones;
+    }
+
+    /**
+     * Maps the issues created by a bulk create back to the sources the inputs were built from: the created issues come
+     * in the order of the inputs, minus the failed ones.
+     */
+    static Map<Issue, BasicIssue> mapToSources(List<Issue> sources, BulkOperationResult<BasicIssue> result) {
+        Set<Integer> failed = new HashSet<>();
+        for (BulkOperationErrorResult error : safe(result.getErrors())) {
+            failed.add(error.getFailedElementNumber());
+            log.error("Could not clone {}: {}",
+                    sources.get(error.getFailedElementNumber()).getKey(),
+                    error.getElementErrors() == null ? null : error.getElementErrors().getErrors());
+        }
+
+        Map<Issue, BasicIssue> clones = new LinkedHashMap<>();
+        Iterator<BasicIssue> created = safe(result.getIssues()).iterator();
+        for (int element = 0; element < sources.size() && created.hasNext(); element++) {
+            if (!failed.contains(element)) {
+                BasicIssue clone = created.next();
+                log.info("Issue {} cloned to {}", sources.get(element).getKey(), clone.getKey());
+                clones.put(sources.get(element), clone);
+            }
+        }
+        return clones;
+    }
+
+    private static List<String> keysOf(Collection<Issue> issues) {
+        return issues.stream()
+                .map(Issue::getKey)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,275 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.clone;
+
+import com.atlassian.jira.rest.client.api.domain.BasicIssue;
+import com.atlassian.jira.rest.client.api.domain.BasicProject;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueField;
+import com.atlassian.jira.rest.client.api.domain.IssueLink;
+import com.atlassian.jira.rest.client.api.domain.IssueLinkType.Direction;
+import com.atlassian.jira.rest.client.api.domain.Subtask;
+import com.atlassian.jira.rest.client.api.domain.input.LinkIssuesInput;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.search.JqlSearch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.String.format;
+import static ro.albertlr.jira.Jira.safe;
+
+/**
+ * Moves a tree of issues to another project as a single job:
+ * <ol>
+ * <li>the closure of the given issues is loaded: the children of the epics and the issues linked with one of the
+ * followed link types, recursively, a level at a time with bulk searches; subtasks are moved with their parent
+ * (unless subtasks are not cloned)</li>
+ * <li>the issues are cloned in dependency order, epics before their children: each level is cloned by a
+ * {@link BulkClone} (bulk creates in parallel) with the fields referring to issues of the previous levels, like the
+ * epic link, pointing to their clones</li>
+ * <li>the links of all the clones are created in a final phase, with the links between moved issues pointing to the
+ * new keys and created once</li>
+ * </ol>
+ */
+@Slf4j
+@Builder
+public class BulkMove {
+    public static final int DEFAULT_MAX_ISSUES = 1000;
+    public static final String EPIC_LINK = "Epic Link";
+    private static final String EPIC = "Epic";
+    private static final String CLONE_LINK = "Cloners";
+    private static final Set<String> LINK_FIELDS = ImmutableSet.of("issuelinks");
+
+    private final Jira jira;
+    /**
+     * Clones the issues of a level, without their links (they are created at the end).
+     */
+    private final BulkClone.BulkCloneBuilder bulkClone;
+    private final BasicProject targetProject;
+    /**
+     * Whether the children of the epics are moved with them.
+     */
+    @Builder.Default
+    private final boolean followingChildren = true;
+    /**
+     * Whether the bulk clone clones the subtasks with their parent, in which case the subtasks are not moved on their
+     * own.
+     */
+    @Builder.Default
+    private final boolean cloningSubtasks = true;
+    /**
+     * Names of the link types whose linked issues are moved as well.
+     */
+    @Builder.Default
+    private final Set<String> followedLinkTypes = Collections.emptySet();
+    /**
+     * The move is refused when the closure has more issues than this.
+     */
+    @Builder.Default
+    private final int maxIssues = DEFAULT_MAX_ISSUES;
+    /**
+     * Number of issues whose links are created at a time in the final phase.
+     */
+    @Builder.Default
+    private final int linkBatchSize = Jira.SEARCH_CHUNK_SIZE;
+
+    /**
+     * @return the clones by the key of their source, subtasks included; issues that could not be moved are missing
+     */
+    public Map<String, BasicIssue> run(Collection<String> rootKeys) {
+        Map<String, Issue> closure = closure(rootKeys);
+        List<Map<String, Issue>> levels = levels(closure);
+        log.info("Moving {} issues to {} in {} levels", closure.size(), targetProject.getKey(), levels.size());
+
+        Map<String, BasicIssue> moved = new LinkedHashMap<>();
+        Map<String, String> newKeys = new HashMap<>();
+        for (Map<String, Issue> level : levels) {
+            Map<String, BasicIssue> clones = bulkClone
+                    .targetProject(targetProject)
+                    .newKeys(ImmutableMap.copyOf(newKeys))
+                    .build()
+                    .run(level);
+            for (Map.Entry<String, BasicIssue> clone : clones.entrySet()) {
+                moved.put(clone.getKey(), clone.getValue());
+                newKeys.put(clone.getKey(), clone.getValue().getKey());
+            }
+        }
+
+        linkAll(newKeys);
+        log.info("Moved {} issues to {}: {}", moved.size(), targetProject.getKey(), jira.linkReplicator().summary());
+        return moved;
+    }
+
+    private Map<String, Issue> closure(Collection<String> rootKeys) {
+        Map<String, Issue> closure = new LinkedHashMap<>();
+        Set<String> toLoad = new LinkedHashSet<>(rootKeys);
+        Map<String, Issue> found = new LinkedHashMap<>();
+        while (!toLoad.isEmpty() || !found.isEmpty()) {
+            if (!toLoad.isEmpty()) {
+                Map<String, Issue> loaded = jira.loadIssues(toLoad, Jira.ALL_FIELDS);
+                for (String key : toLoad) {
+                    if (!loaded.containsKey(key)) {
+                        log.error("Could not load {}, it will not be moved", key);
+                    }
+                }
+                found.putAll(loaded);
+            }
+            closure.putAll(found);
+            if (closure.size() > maxIssues) {
+                throw new IllegalArgumentException(
+                        format("More than %d issues to move from %s, refusing to move them", maxIssues, rootKeys));
+            }
+
+            Map<String, Issue> frontier = found;
+            found = new LinkedHashMap<>();
+            toLoad = new LinkedHashSet<>();
+
+            if (followingChildren) {
+                for (Issue child : childrenOf(frontier.values())) {
+                    if (!closure.containsKey(child.getKey())) {
+                        found.put(child.getKey(), child);
+                    }
+                }
+            }
+            for (Issue issue : frontier.values()) {
+                for (IssueLink link : safe(issue.getIssueLinks())) {
+                    String linked = link.getTargetIssueKey();
+                    if (followedLinkTypes.contains(link.getIssueLinkType().getName())
+                            && !closure.containsKey(linked) && !found.containsKey(linked)) {
+                        toLoad.add(linked);
+                    }
+                }
+            }
+        }
+
+        if (!cloningSubtasks) {
+            return closure;
+        }
+        // subtasks are cloned with their parent
+        Set<String> subtasks = new HashSet<>();
+        for (Issue issue : closure.values()) {
+            for (Subtask subtask : safe(issue.getSubtasks())) {
+                subtasks.add(subtask.getIssueKey());
+            }
+        }
+        closure.keySet().removeAll(subtasks);
+        return closure;
+    }
+
+    private Iterable<Issue> childrenOf(Collection<Issue> issues) {
+        List<String> epics = new ArrayList<>();
+        for (Issue issue : issues) {
+            if (issue.getIssueType() != null && EPIC.equals(issue.getIssueType().getName())) {
+                epics.add(issue.getKey());
+            }
+        }
+        List<Issue> children = new ArrayList<>();
+        for (List<String> chunk : Iterables.partition(epics, Jira.SEARCH_CHUNK_SIZE)) {
+            JqlSearch search = JqlSearch.builder()
+                    .jira(jira)
+                    .jql(format("\"%s\" in (%s)", EPIC_LINK, Joiner.on(',').join(chunk)))
+                    .fields(Jira.ALL_FIELDS)
+                    .build();
+            Iterables.addAll(children, search);
+        }
+        return children;
+    }
+
+    /**
+     * Groups the issues by their depth in the epic hierarchy of the closure: first the issues without a parent in the
+     * closure, then their children and so on.
+     */
+    private List<Map<String, Issue>> levels(Map<String, Issue> closure) {
+        List<Map<String, Issue>> levels = new ArrayList<>();
+        for (Issue issue : closure.values()) {
+            int depth = 0;
+            Set<String> visited = new HashSet<>();
+            for (String parent = epicOf(issue); parent != null && closure.containsKey(parent) && visited.add(parent);
+                 parent = epicOf(closure.get(parent))) {
+                depth++;
+            }
+            while (levels.size() <= depth) {
+                levels.add(new LinkedHashMap<>());
+            }
+            levels.get(depth).put(issue.getKey(), issue);
+        }
+        return levels;
+    }
+
+    private static String epicOf(Issue issue) {
+        for (IssueField field : safe(issue.getFields())) {
+            if (EPIC_LINK.equals(field.getName()) && field.getValue() instanceof String) {
+                return (String) field.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replicates the links of the moved issues on their clones, links to other moved issues pointing to their clones.
+     */
+    private void linkAll(Map<String, String> newKeys) {
+        Map<String, Issue> sources = jira.loadIssues(newKeys.keySet(), LINK_FIELDS);
+
+        Set<String> planned = new HashSet<>();
+        Map<String, Collection<LinkIssuesInput>> linksByClone = new LinkedHashMap<>();
+        for (Issue source : sources.values()) {
+            String cloneKey = newKeys.get(source.getKey());
+            Collection<LinkIssuesInput> links = linksByClone.computeIfAbsent(cloneKey, key -> new ArrayList<>());
+            links.add(new LinkIssuesInput(cloneKey, source.getKey(), CLONE_LINK));
+
+            for (IssueLink link : safe(source.getIssueLinks())) {
+                String other = newKeys.getOrDefault(link.getTargetIssueKey(), link.getTargetIssueKey());
+                String type = link.getIssueLinkType().getName();
+                boolean outbound = Direction.OUTBOUND.equals(link.getIssueLinkType().getDirection());
+                String from = outbound ? cloneKey : other;
+                String to = outbound ? other : cloneKey;
+                // a link between two moved issues is seen from both of them
+                if (planned.add(from + '|' + to + '|' + type)) {
+                    links.add(new LinkIssuesInput(from, to, type));
+                }
+            }
+        }
+
+        List<String> clones = new ArrayList<>(linksByClone.keySet());
+        for (List<String> batch : Iterables.partition(clones, linkBatchSize)) {
+            Map<String, Collection<LinkIssuesInput>> links = new LinkedHashMap<>();
+            for (String cloneKey : batch) {
+                links.put(cloneKey, linksByClone.get(cloneKey));
+            }
+            jira.linkReplicator().replicate(links);
+        }
+    }
+}
@@ -22,7 +22,7 @@ package ro.albertlr.jira.clone;
 import lombok.Builder;
 import lombok.Getter;
 
-@Builder
+@Builder(toBuilder = true)
 @Getter
 public class CloneConfig {
     @Builder.Default
@@ -0,0 +1,201 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.clone;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueField;
+import com.atlassian.jira.rest.client.api.domain.input.ComplexIssueInputFieldValue;
+import com.atlassian.jira.rest.client.api.domain.input.IssueInputBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import ro.albertlr.jira.Configuration.IssueTypeConfig;
+import ro.albertlr.jira.meta.MetadataCache.CreateMeta;
+import ro.albertlr.jira.meta.MetadataCache.FieldInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fields copied when cloning issues of a type to a project, compiled once from the {@link IssueTypeConfig} and the
+ * create metadata of the target project: only the fields that can be set on create, are not excluded by the
+ * configuration and have a value type we know how to send back are kept, each with the converter of its value.
+ * Cloning an issue is then a loop over these fields only.
+ * <p>
+ * Versions, components and options belong to a project, so they are matched by name (the value of an option) to the
+ * allowed values of the target project; values that have no match there are not copied.
+ */
+@Slf4j
+@Getter
+@ToString
+public class ClonePlan {
+    /**
+     * Fields set explicitly when building the clone input, never copied as they are.
+     */
+    private static final Set<String> EXPLICIT_FIELDS = ImmutableSet.of(
+            "project", "issuetype", "summary", "description", "priority", "reporter", "assignee", "labels",
+            "versions", "fixVersions", "components", "parent"
+    );
+
+    private final String projectKey;
+    private final String issueTypeName;
+    private final List<FieldPlan> fields;
+
+    private ClonePlan(String projectKey, String issueTypeName, List<FieldPlan> fields) {
+        this.projectKey = projectKey;
+        this.issueTypeName = issueTypeName;
+        this.fields = fields;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    public static class FieldPlan {
+        private final String id;
+        @ToString.Exclude
+        private final Converter converter;
+    }
+
+    /**
+     * Turns the value of a field as read from an issue into a value {@link IssueInputBuilder} can send, {@code null} if
+     * it cannot be sent.
+     */
+    interface Converter {
+        Object convert(Object value) throws JSONException;
+    }
+
+    public static ClonePlan compile(IssueTypeConfig typeConfig, CreateMeta createMeta) {
+        ImmutableList.Builder<FieldPlan> fields = ImmutableList.builder();
+        List<String> skipped = new ArrayList<>();
+        for (FieldInfo field : createMeta.getFields().values()) {
+            String id = field.getId();
+            if (EXPLICIT_FIELDS.contains(id)
+                    || typeConfig.getFieldsToNotClone().contains(id)
+                    || typeConfig.getRequiredFields().contains(id)) {
+                continue;
+            }
+            Converter converter = converterFor(field, createMeta.getProjectKey());
+            if (converter == null) {
+                skipped.add(id);
+                continue;
+            }
+            fields.add(new FieldPlan(id, converter));
+        }
+
+        ClonePlan plan = new ClonePlan(createMeta.getProjectKey(), createMeta.getIssueTypeName(), fields.build());
+        log.debug("Clone plan of {} in {}: {} fields, not cloning {} (unsupported values)",
+                plan.issueTypeName, plan.projectKey, plan.fields.size(), skipped);
+        return plan;
+    }
+
+    /**
+     * Copies the planned fields of the source that have a value.
+     *
+     * @param newKeys keys of issues cloned in the same job by the key of their source; text values equal to one of
+     *                the source keys (e.g. the epic link) are replaced with the key of its clone
+     */
+    public void apply(Issue source, IssueInputBuilder issueBuilder, Map<String, String> newKeys) {
+        for (FieldPlan field : fields) {
+            IssueField sourceField = source.getField(field.id);
+            Object value = sourceField != null ? sourceField.getValue() : null;
+            if (value == null || JSONObject.NULL.equals(value)) {
+                continue;
+            }
+            try {
+                Object converted = field.converter.convert(value);
+                if (converted == null) {
+                    continue;
+                }
+                if (converted instanceof String && newKeys.containsKey(converted)) {
+                    converted = newKeys.get(converted);
+                }
+                issueBuilder.setFieldValue(field.id, converted);
+            } catch (JSONException | RuntimeException e) {
+                log.warn("Could not copy field {} of {}: {}", field.id, source.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private static Converter converterFor(FieldInfo field, String projectKey) {
+        if ("array".equals(field.getType())) {
+            Converter item = converterFor(field, field.getItems(), projectKey);
+            return item == null ? null : value -> {
+                JSONArray array = (JSONArray) value;
+                List<Object> converted = new ArrayList<>(array.length());
+                for (int i = 0; i < array.length(); i++) {
+                    Object convertedItem = item.convert(array.get(i));
+                    if (convertedItem != null) {
+                        converted.add(convertedItem);
+                    }
+                }
+                return converted.isEmpty() && array.length() > 0 ? null : converted;
+            };
+        }
+        return converterFor(field, field.getType(), projectKey);
+    }
+
+    private static Converter converterFor(FieldInfo field, String type, String projectKey) {
+        if (type == null) {
+            return null;
+        }
+        switch (type) {
+            case "string":
+            case "date":
+            case "datetime":
+                return String::valueOf;
+            case "number":
+                return value -> value instanceof Number ? value : Double.valueOf(String.valueOf(value));
+            case "option":
+            case "component":
+            case "version":
+                if (field.getAllowedValues() != null) {
+                    Map<String, String> allowedValues = field.getAllowedValues();
+                    return value -> {
+                        JSONObject source = (JSONObject) value;
+                        String name = source.optString("name", source.optString("value", null));
+                        String id = allowedValues.get(name);
+                        if (id == null) {
+                            log.warn("Not copying {} {} of field {}, there is no such {} in {}",
+                                    type, name, field.getId(), type, projectKey);
+                            return null;
+                        }
+                        return ComplexIssueInputFieldValue.with("id", id);
+                    };
+                }
+                return value -> ComplexIssueInputFieldValue.with("id", ((JSONObject) value).getString("id"));
+            case "priority":
+            case "resolution":
+                return value -> ComplexIssueInputFieldValue.with("id", ((JSONObject) value).getString("id"));
+            case "user":
+            case "group":
+                return value -> ComplexIssueInputFieldValue.with("name", ((JSONObject) value).getString("name"));
+            default:
+                return null;
+        }
+    }
+}
@@ -19,26 +19,48 @@
  */
 package ro.albertlr.jira.clone;
 
-import com.atlassian.jira.rest.client.api.domain.Attachment;
 import com.atlassian.jira.rest.client.api.domain.BasicIssue;
+import com.atlassian.jira.rest.client.api.domain.BasicProject;
 import com.atlassian.jira.rest.client.api.domain.Issue;
 import com.atlassian.jira.rest.client.api.domain.Subtask;
-import com.atlassian.jira.rest.client.api.domain.input.AttachmentInput;
+import com.google.common.collect.Lists;
 import io.atlassian.util.concurrent.Promise.TryConsumer;
 import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Jira;
 
 import javax.annotation.Nonnull;
-import java.io.IOException;
-import java.util.stream.StreamSupport;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
 
 import static ro.albertlr.jira.Jira.safe;
 
+/**
+ * Clones the subtasks of the source under its clone: the subtasks are loaded with a bulk search and created with
+ * bulk create requests ({@code batchSize} subtasks each, usually one request), then handed over one by one to
+ * {@code onCloned}.
+ */
 @Slf4j
 public class CloneSubtasks implements TryConsumer<BasicIssue> {
+    private final Jira jira;
     private final Issue source;
+    private final CloneConfig config;
+    private final BasicProject targetProject;
+    private final int batchSize;
+    private final BiConsumer<Issue, BasicIssue> onCloned;
 
-    public CloneSubtasks(Issue source) {
+    /**
+     * @param targetProject project to create the subtasks in, {@code null} to keep them in their project
+     */
+    public CloneSubtasks(Jira jira, Issue source, CloneConfig config, BasicProject targetProject, int batchSize,
+                         BiConsumer<Issue, BasicIssue> onCloned) {
+        this.jira = jira;
         this.source = source;
+        this.config = config;
+        this.targetProject = targetProject;
+        this.batchSize = batchSize;
+        this.onCloned = onCloned;
     }
 
     @Override
@@ -47,28 +69,24 @@ public class CloneSubtasks implements TryConsumer<BasicIssue> {
     }
 
     @Override
-    public void accept(BasicIssue basicIssue) {
-        if (basicIssue instanceof Issue) {
-            for (Subtask subtask : safe(source.getSubtasks())) {
-                log.info("SKIPPING subtasks {}", subtask);
-            }
+    public void accept(BasicIssue parent) {
+        List<String> subtaskKeys = new ArrayList<>();
+        for (Subtask subtask : safe(source.getSubtasks())) {
+            subtaskKeys.add(subtask.getIssueKey());
+        }
+        if (subtaskKeys.isEmpty()) {
+            return;
         }
-    }
-
-    AttachmentInput[] toAttachmentInputs(Iterable<Attachment> attachments) {
-        return StreamSupport.stream(attachments.spliterator(), false)
-                .map(this::toAttachmentInput)
-                .toArray(AttachmentInput[]::new);
-    }
 
+        Map<String, Issue> subtasks = jira.loadIssues(subtaskKeys, Jira.ALL_FIELDS);
+        log.info("Cloning {} subtasks of {} under {}", subtasks.size(), source.getKey(), parent.getKey());
 
-    AttachmentInput toAttachmentInput(Attachment attachment) {
-        try {
-            return new AttachmentInput(attachment.getFilename(), attachment.getContentUri().toURL().openStream());
-        } catch (IOException e) {
-            log.warn("Could not convert attachment {}", attachment.getFilename(), e);
-            return null;
+        for (List<Issue> batch : Lists.partition(new ArrayList<>(subtasks.values()), batchSize)) {
+            Map<Issue, BasicIssue> clones = BulkClone.create(jira, batch, subtask -> {
+                BasicProject project = targetProject != null ? targetProject : subtask.getProject();
+                return jira.cloneInput(subtask, config, project, parent.getKey());
+            });
+            clones.forEach(onCloned);
         }
     }
-
 }
@@ -0,0 +1,99 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.clone;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * One stage of the clone pipeline: a fixed number of threads fed by a bounded queue. When the queue is full the
+ * submitting thread runs the task itself, which slows the previous stage down instead of piling up work. Counts the
+ * tasks done and failed and the time spent, for the throughput summary.
+ */
+@Slf4j
+class PipelineStage {
+    @Getter
+    private final String name;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong firstStart = new AtomicLong();
+    private final AtomicLong lastEnd = new AtomicLong();
+
+    PipelineStage(String name, int threads, int queueSize) {
+        this.name = name;
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder().setNameFormat("clone-" + name + "-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    /**
+     * @param subject what the task works on, for logging
+     */
+    void submit(String subject, Runnable task) {
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            firstStart.compareAndSet(0, start);
+            try {
+                task.run();
+                succeeded.incrementAndGet();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                log.error("Stage {} failed for {}", name, subject, e);
+            } finally {
+                lastEnd.accumulateAndGet(System.nanoTime(), Math::max);
+            }
+        });
+    }
+
+    /**
+     * Waits for all the submitted tasks; no more tasks can be submitted afterwards.
+     */
+    void awaitCompletion() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("Stage {} still running: {} done, {} queued", name, succeeded.get() + failed.get(), executor.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    String summary() {
+        long done = succeeded.get() + failed.get();
+        double seconds = done == 0 ? 0 : (lastEnd.get() - firstStart.get()) / 1e9;
+        return format("%-12s %5d done, %3d failed in %7.2fs (%.1f/s)",
+                name, succeeded.get(), failed.get(), seconds, seconds > 0 ? done / seconds : 0.0);
+    }
+}
@@ -22,91 +22,123 @@ package ro.albertlr.jira.csv;
 import com.atlassian.jira.rest.client.api.domain.Issue;
 import com.atlassian.jira.rest.client.api.domain.IssueLink;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import lombok.Builder;
 import lombok.Getter;
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
-import org.springframework.util.CollectionUtils;
 import ro.albertlr.jira.Jira;
 import ro.albertlr.jira.action.GetE2EsRecursively;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static java.lang.String.format;
 import static java.util.Optional.ofNullable;
+import static ro.albertlr.jira.Jira.safe;
 
 public class Exporter {
-    public static void issueWithFunctionalArea(Jira jira, Collection<String> issueKeys) throws IOException {
-        RecordWithFA.RecordWithFABuilder builder = null;
-        Collection<RecordWithFA> records = new ArrayList<>();
-        for (String issueKey : issueKeys) {
-            Issue issue = jira.loadIssue(issueKey);
-
-            builder = RecordWithFA.builder()
-                    .ticketId(issue.getKey())
-                    .summary(issue.getSummary());
-
-            for (IssueLink link : issue.getIssueLinks()) {
-                link.getIssueLinkType().getName();
+    public static final String FUNCTIONAL_AREA = "fa";
+
+    private static final Set<String> TICKET_FIELDS = ImmutableSet.of("summary", "issuetype", "issuelinks");
+    private static final Set<String> LINKED_ISSUE_FIELDS = ImmutableSet.of("summary", "issuetype");
+
+    /**
+     * Exports the tickets with the functional areas they are linked to. The tickets are loaded in bulk, then the FAs
+     * among the issues they link to are loaded in bulk as well (only summary and type, the search is restricted to
+     * the FA issue type), so the whole export costs a couple of searches per {@link Jira#SEARCH_CHUNK_SIZE} issues.
+     */
+    public static void issueWithFunctionalArea(Jira jira, Collection<String> issueKeys, Output output) throws IOException {
+        final String faTypeName = jira.getConfiguration()
+                .configFor(FUNCTIONAL_AREA)
+                .getJiraIssueTypeName();
+
+        Map<String, Issue> tickets = jira.loadIssues(issueKeys, TICKET_FIELDS);
+
+        Set<String> linkedKeys = new LinkedHashSet<>();
+        for (Issue ticket : tickets.values()) {
+            for (IssueLink link : safe(ticket.getIssueLinks())) {
+                if (!tickets.containsKey(link.getTargetIssueKey())) {
+                    linkedKeys.add(link.getTargetIssueKey());
+                }
             }
+        }
+        Map<String, Issue> linkedIssues = jira.loadIssues(linkedKeys, LINKED_ISSUE_FIELDS,
+                format("issuetype = \"%s\"", faTypeName.replace("\"", "\\\"")));
 
-            if (GetE2EsRecursively.isReleasableType(issue.getIssueType())) {
-                builder.ticketId(issue.getKey());
-            } else {
-                builder.faId(issue.getKey());
+        Map<String, String> faSummaries = new HashMap<>();
+        for (Issue issue : Iterables.concat(tickets.values(), linkedIssues.values())) {
+            if (faTypeName.equals(issue.getIssueType().getName())) {
+                faSummaries.put(issue.getKey(), issue.getSummary());
             }
+        }
+
+        Iterable<RecordWithFA> records = () -> tickets.values().stream()
+                .flatMap(ticket -> recordsWithFA(ticket, faSummaries))
+                .iterator();
+
+        saveMapping(output, records, FunctionalAreaHeader.values());
+    }
 
-            records.add(builder.build());
+    private static Stream<RecordWithFA> recordsWithFA(Issue ticket, Map<String, String> faSummaries) {
+        RecordWithFA.RecordWithFABuilder builder = RecordWithFA.builder()
+                .ticketId(ticket.getKey())
+                .summary(ticket.getSummary());
+
+        if (faSummaries.containsKey(ticket.getKey())) {
+            return Stream.of(
+                    builder.faId(ticket.getKey())
+                            .faSummary(ticket.getSummary())
+                            .build()
+            );
         }
 
-        saveMapping(
-                "output.csv",
-                records.stream()
-                        .map(rec -> (Iterable<String>) rec)
-                        .collect(Collectors.toList()),
-                (Header[]) Header.values()
-        );
+        Set<String> faKeys = new LinkedHashSet<>();
+        for (IssueLink link : safe(ticket.getIssueLinks())) {
+            if (faSummaries.containsKey(link.getTargetIssueKey())) {
+                faKeys.add(link.getTargetIssueKey());
+            }
+        }
+        if (faKeys.isEmpty()) {
+            return Stream.of(builder.build());
+        }
+        return faKeys.stream()
+                .map(faKey -> builder.faId(faKey)
+                        .faSummary(faSummaries.get(faKey))
+                        .build());
     }
 
-    public static void exportToCsv(Jira jira, Map<String, Set<Issue>> e2es) throws IOException {
-        Record.RecordBuilder builder = null;
-        Collection<Record> records = new ArrayList<>();
-        for (Map.Entry<String, Set<Issue>> issueToDependsOn : e2es.entrySet()) {
-            Issue issue = jira.loadIssue(issueToDependsOn.getKey());
+    public static void exportToCsv(Jira jira, Map<String, Set<Issue>> e2es, Output output) throws IOException {
+        try (RecordSink sink = output.open(Header.values())) {
+            for (Map.Entry<String, Set<Issue>> issueToDependsOn : e2es.entrySet()) {
+                Issue issue = jira.loadIssue(issueToDependsOn.getKey());
 
-            builder = Record.builder()
-                    .summary(issue.getSummary());
+                Record.RecordBuilder builder = Record.builder()
+                        .summary(issue.getSummary());
 
-            if (GetE2EsRecursively.isReleasableType(issue.getIssueType())) {
-                builder.ticketId(issue.getKey());
-            } else {
-                builder.e2eId(issue.getKey());
-            }
+                if (GetE2EsRecursively.isReleasableType(issue.getIssueType())) {
+                    builder.ticketId(issue.getKey());
+                } else {
+                    builder.e2eId(issue.getKey());
+                }
 
-            Set<Issue> issues = issueToDependsOn.getValue();
-            if (CollectionUtils.isEmpty(issues)) {
-                records.add(builder.build());
-            } else {
-                for (Issue dependsOnE2E : issues) {
-                    builder.dependsOnE2EId(dependsOnE2E.getKey());
-                    records.add(builder.build());
+                Set<Issue> issues = issueToDependsOn.getValue();
+                if (issues == null || issues.isEmpty()) {
+                    sink.write(builder.build());
+                } else {
+                    for (Issue dependsOnE2E : issues) {
+                        builder.dependsOnE2EId(dependsOnE2E.getKey());
+                        sink.write(builder.build());
+                    }
                 }
             }
         }
-
-        saveMapping(
-                "output.csv",
-                records.stream()
-                        .map(rec -> (Iterable<String>) rec)
-                        .collect(Collectors.toList()),
-                (Header[]) Header.values()
-        );
     }
 
     @Builder
@@ -123,7 +155,7 @@ public class Exporter {
                     (
                             ofNullable(ticketId).orElse(""),
                             ofNullable(e2eId).orElse(""),
-                            summary,
+                            ofNullable(summary).orElse(""),
                             ofNullable(dependsOnE2EId).orElse("")
                     )
                     .iterator();
@@ -143,9 +175,9 @@ public class Exporter {
             return ImmutableList.of
                     (
                             ofNullable(ticketId).orElse(""),
-                            summary,
+                            ofNullable(summary).orElse(""),
                             ofNullable(faId).orElse(""),
-                            faSummary
+                            ofNullable(faSummary).orElse("")
                     )
                     .iterator();
         }
@@ -158,26 +190,30 @@ public class Exporter {
         E2E;
     }
 
-    private static CSVFormat csvFormat() {
+    public static enum FunctionalAreaHeader {
+        Ticket,
+        Summary,
+        Functional_Area,
+        FA_Summary;
+    }
+
+    static CSVFormat csvFormat() {
         return CSVFormat.DEFAULT
                 .withDelimiter(';')
                 .withFirstRecordAsHeader();
     }
 
-    public static void saveMapping(String filename, Collection<Iterable<String>> records, Header... headers) throws IOException {
-        try (FileWriter out = new FileWriter(filename);
-             CSVPrinter printer = csvFormat()
-                     .withHeader(headers(headers))
-                     .print(out);) {
-            for (Iterable<String> record : records) {
-                printer.printRecord(record);
-            }
-        } catch (IOException ex) {
-            ex.printStackTrace();
+    public static void saveMapping(String filename, Iterable<? extends Iterable<String>> records, Enum<?>... headers) throws IOException {
+        saveMapping(Output.of(filename), records, headers);
+    }
+
+    public static void saveMapping(Output output, Iterable<? extends Iterable<String>> records, Enum<?>... headers) throws IOException {
+        try (RecordSink sink = output.open(headers)) {
+            sink.writeAll(records);
         }
     }
 
-    private static String[] headers(Header... headers) {
+    static String[] headers(Enum<?>... headers) {
         String[] headersText = new String[headers.length];
         for (int i = 0; i < headers.length; i++) {
             headersText[i] = headers[i].name();
@@ -0,0 +1,266 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.csv;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.ObjectArrays;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static ro.albertlr.jira.Action.paramAt;
+
+/**
+ * Where and how an export is written: the file, the record format, whether it is gzipped and after how many rows
+ * the output is rotated to a new file (0 means never). With rotation the files are numbered, so {@code output.csv}
+ * becomes {@code output-00001.csv}, {@code output-00002.csv} and so on.
+ */
+@Builder(toBuilder = true)
+@Getter
+@ToString
+public class Output {
+    public static final String DEFAULT_PATH = "output.csv";
+    private static final String GZIP_EXTENSION = ".gz";
+
+    @Builder.Default
+    private final String path = DEFAULT_PATH;
+    @Builder.Default
+    private final Format format = Format.CSV;
+    private final boolean gzip;
+    private final long rowsPerFile;
+
+    public enum Format {
+        CSV("csv") {
+            @Override
+            RecordSink.RecordWriter open(Writer out, String[] headers) throws IOException {
+                CSVPrinter printer = Exporter.csvFormat()
+                        .withHeader(headers)
+                        .print(out);
+                return new RecordSink.RecordWriter() {
+                    @Override
+                    public void write(Iterable<String> record) throws IOException {
+                        printer.printRecord(record);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        printer.close();
+                    }
+                };
+            }
+
+            @Override
+            Iterator<List<String>> read(BufferedReader in, String[] headers) throws IOException {
+                CSVParser parser = Exporter.csvFormat()
+                        .withHeader(headers)
+                        .withSkipHeaderRecord(false)
+                        .parse(in);
+                return Iterators.transform(parser.iterator(), Lists::newArrayList);
+            }
+        },
+        /**
+         * JSON Lines: one JSON object per record, keyed by the headers.
+         */
+        JSONL("jsonl") {
+            @Override
+            RecordSink.RecordWriter open(Writer out, String[] headers) {
+                return new RecordSink.RecordWriter() {
+                    @Override
+                    public void write(Iterable<String> record) throws IOException {
+                        out.write('{');
+                        int column = 0;
+                        for (String value : record) {
+                            if (column > 0) {
+                                out.write(',');
+                            }
+                            writeJsonString(out, column < headers.length ? headers[column] : "column" + column);
+                            out.write(':');
+                            writeJsonString(out, value);
+                            column++;
+                        }
+                        out.write("}\n");
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        out.close();
+                    }
+                };
+            }
+
+            @Override
+            Iterator<List<String>> read(BufferedReader in, String[] headers) {
+                return in.lines()
+                        .filter(line -> !line.isEmpty())
+                        .map(line -> {
+                            try {
+                                JSONObject json = new JSONObject(line);
+                                List<String> record = new ArrayList<>(headers.length);
+                                for (String header : headers) {
+                                    record.add(json.isNull(header) ? null : json.getString(header));
+                                }
+                                return record;
+                            } catch (JSONException e) {
+                                throw new IllegalStateException(String.format("Not a JSON record: %s", line), e);
+                            }
+                        })
+                        .iterator();
+            }
+        };
+
+        private final String name;
+
+        Format(String name) {
+            this.name = name;
+        }
+
+        abstract RecordSink.RecordWriter open(Writer out, String[] headers) throws IOException;
+
+        abstract Iterator<List<String>> read(BufferedReader in, String[] headers) throws IOException;
+
+        public static Format from(String name) {
+            for (Format format : values()) {
+                if (format.name.equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Unknown output format %s", name));
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static void writeJsonString(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    public static Output defaultOutput() {
+        return Output.builder().build();
+    }
+
+    public static Output of(String path) {
+        return Output.builder().path(path).build();
+    }
+
+    /**
+     * Opens a sink for this output; the records written to it are streamed to disk as they come.
+     */
+    public RecordSink open(Enum<?>... headers) throws IOException {
+        return new RecordSink(this, Exporter.headers(headers));
+    }
+
+    public RecordSink open(String... headers) throws IOException {
+        return new RecordSink(this, headers);
+    }
+
+    /**
+     * Reads back the given files, written by a sink of this output.
+     */
+    public RecordSource read(List<File> files, String... headers) {
+        return new RecordSource(format, files, headers);
+    }
+
+    public boolean isGzip() {
+        return gzip || path.endsWith(GZIP_EXTENSION);
+    }
+
+    /**
+     * @param shard the 1 based number of the file when the output is rotated, 0 when it is not
+     */
+    public File fileFor(int shard) {
+        String base = path.endsWith(GZIP_EXTENSION) ? path.substring(0, path.length() - GZIP_EXTENSION.length()) : path;
+        if (shard > 0) {
+            int extension = base.lastIndexOf('.');
+            int separator = base.lastIndexOf(File.separatorChar);
+            String suffix = String.format("-%05d", shard);
+            base = extension > separator
+                    ? base.substring(0, extension) + suffix + base.substring(extension)
+                    : base + suffix;
+        }
+        return new File(isGzip() ? base + GZIP_EXTENSION : base);
+    }
+
+    /**
+     * Encodes this output as action parameters, after the given leading ones; see {@link #fromParams(String[], int)}.
+     */
+    public String[] toParams(String... leading) {
+        return ObjectArrays.concat(
+                leading,
+                new String[]{path, format.toString(), String.valueOf(gzip), String.valueOf(rowsPerFile)},
+                String.class
+        );
+    }
+
+    public static Output fromParams(String[] params, int offset) {
+        return Output.builder()
+                .path(paramAt(params, offset, "output", DEFAULT_PATH))
+                .format(Format.from(paramAt(params, offset + 1, "format", Format.CSV.toString())))
+                .gzip(Boolean.parseBoolean(paramAt(params, offset + 2, "gzip", "false")))
+                .rowsPerFile(Long.parseLong(paramAt(params, offset + 3, "rowsPerFile", "0")))
+                .build();
+    }
+}
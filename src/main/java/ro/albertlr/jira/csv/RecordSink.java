@@ -0,0 +1,123 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.csv;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Streams records to the file(s) of an {@link Output}, one record at a time, so the size of an export is not bound by
+ * the heap. Writes go through a large buffer (and gzip if asked for) and the file is rotated every
+ * {@link Output#getRowsPerFile()} rows. Nothing is swallowed: any I/O failure is thrown to the caller.
+ */
+@Slf4j
+public class RecordSink implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    interface RecordWriter extends Closeable {
+        void write(Iterable<String> record) throws IOException;
+    }
+
+    private final Output output;
+    private final String[] headers;
+    private final List<File> files = new ArrayList<>();
+    @Getter
+    private long rowCount;
+
+    private RecordWriter writer;
+    private long rowsInFile;
+
+    RecordSink(Output output, String[] headers) {
+        this.output = output;
+        this.headers = headers;
+    }
+
+    public void write(Iterable<String> record) throws IOException {
+        if (writer != null && output.getRowsPerFile() > 0 && rowsInFile >= output.getRowsPerFile()) {
+            closeFile();
+        }
+        if (writer == null) {
+            openFile();
+        }
+        writer.write(record);
+        rowsInFile++;
+        rowCount++;
+    }
+
+    public void writeAll(Iterable<? extends Iterable<String>> records) throws IOException {
+        for (Iterable<String> record : records) {
+            write(record);
+        }
+    }
+
+    public List<File> getFiles() {
+        return Collections.unmodifiableList(files);
+    }
+
+    private void openFile() throws IOException {
+        File file = output.fileFor(output.getRowsPerFile() > 0 ? files.size() + 1 : 0);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            if (output.isGzip()) {
+                out = new GZIPOutputStream(out, 1 << 16);
+            }
+            writer = output.getFormat().open(new BufferedWriter(new OutputStreamWriter(out, UTF_8), BUFFER_SIZE), headers);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        files.add(file);
+        rowsInFile = 0;
+    }
+
+    private void closeFile() throws IOException {
+        try {
+            writer.close();
+        } finally {
+            writer = null;
+        }
+        log.debug("Wrote {} records to {}", rowsInFile, files.get(files.size() - 1));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer == null && files.isEmpty()) {
+            // an empty export still produces its (empty) file
+            openFile();
+        }
+        if (writer != null) {
+            closeFile();
+        }
+    }
+}
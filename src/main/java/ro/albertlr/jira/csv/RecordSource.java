@@ -0,0 +1,108 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.csv;
+
+import com.google.common.collect.AbstractIterator;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads back, one record at a time, the files written by a {@link RecordSink} (in the order they were written).
+ */
+public class RecordSource implements Closeable, Iterable<List<String>> {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Output.Format format;
+    private final List<File> files;
+    private final String[] headers;
+
+    private BufferedReader reader;
+
+    RecordSource(Output.Format format, List<File> files, String[] headers) {
+        this.format = format;
+        this.files = files;
+        this.headers = headers;
+    }
+
+    /**
+     * Can be iterated only once.
+     */
+    @Override
+    public Iterator<List<String>> iterator() {
+        return new AbstractIterator<List<String>>() {
+            private int nextFile;
+            private Iterator<List<String>> records = Collections.emptyIterator();
+
+            @Override
+            protected List<String> computeNext() {
+                while (!records.hasNext()) {
+                    if (nextFile == files.size()) {
+                        return endOfData();
+                    }
+                    try {
+                        records = openFile(files.get(nextFile++));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return records.next();
+            }
+        };
+    }
+
+    private Iterator<List<String>> openFile(File file) throws IOException {
+        close();
+        InputStream in = new FileInputStream(file);
+        try {
+            if (file.getName().endsWith(".gz")) {
+                in = new GZIPInputStream(in, 1 << 16);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        reader = new BufferedReader(new InputStreamReader(in, UTF_8), BUFFER_SIZE);
+        return format.read(reader, headers);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            try {
+                reader.close();
+            } finally {
+                reader = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.graph;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import org.eclipse.collections.api.list.primitive.IntList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static ro.albertlr.jira.Jira.safe;
+
+/**
+ * Directed "depends on" graph where every issue key is interned to a dense int id, so the graph
+ * algorithms can work on primitive arrays. An edge {@code from -> to} means {@code from} depends on {@code to}.
+ */
+public class DependencyGraph {
+    private static final int ABSENT = -1;
+
+    private final ObjectIntHashMap<String> ids = new ObjectIntHashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final List<MutableIntList> successors = new ArrayList<>();
+    private int edgeCount;
+
+    public static DependencyGraph of(Map<String, Set<Issue>> dependencies) {
+        DependencyGraph graph = new DependencyGraph();
+        for (Map.Entry<String, Set<Issue>> issueToDependsOn : dependencies.entrySet()) {
+            int from = graph.intern(issueToDependsOn.getKey());
+            for (Issue dependsOn : safe(issueToDependsOn.getValue())) {
+                graph.addEdge(from, graph.intern(dependsOn.getKey()));
+            }
+        }
+        return graph;
+    }
+
+    public int intern(String key) {
+        int id = ids.getIfAbsent(key, ABSENT);
+        if (id == ABSENT) {
+            id = keys.size();
+            ids.put(key, id);
+            keys.add(key);
+            successors.add(new IntArrayList(2));
+        }
+        return id;
+    }
+
+    public void addEdge(String from, String to) {
+        addEdge(intern(from), intern(to));
+    }
+
+    public void addEdge(int from, int to) {
+        successors.get(from).add(to);
+        edgeCount++;
+    }
+
+    public int idOf(String key) {
+        return ids.getIfAbsent(key, ABSENT);
+    }
+
+    public String keyOf(int node) {
+        return keys.get(node);
+    }
+
+    public IntList successors(int node) {
+        return successors.get(node);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+}
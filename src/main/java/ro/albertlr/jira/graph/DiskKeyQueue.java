@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.graph;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * FIFO queue of issue keys kept in a file and accessed through memory-mapped segments. Only the segment being
+ * written and the segment being read are mapped, so the heap cost does not depend on the number of queued keys.
+ * <p>
+ * Every key is stored as a 2 bytes length followed by its UTF-8 bytes. Keys never cross a segment boundary: when a
+ * key does not fit, a zero length marker closes the segment and the key is written at the start of the next one.
+ */
+public class DiskKeyQueue implements Closeable {
+    private static final short END_OF_SEGMENT = 0;
+
+    private final FileChannel channel;
+    private final int segmentSize;
+
+    private MappedByteBuffer writeSegment;
+    private long writeSegmentIndex = -1;
+    private MappedByteBuffer readSegment;
+    private long readSegmentIndex = -1;
+
+    private long writePosition;
+    private long readPosition;
+    private long size;
+
+    public DiskKeyQueue(File file, int segmentSize) throws IOException {
+        checkArgument(segmentSize >= 1024, "Segment size must be at least 1KB, was %s", segmentSize);
+        this.segmentSize = segmentSize;
+        this.channel = FileChannel.open(file.toPath(), CREATE, READ, WRITE, TRUNCATE_EXISTING, DELETE_ON_CLOSE);
+    }
+
+    public void offer(String key) throws IOException {
+        byte[] bytes = key.getBytes(UTF_8);
+        checkArgument(bytes.length > 0 && bytes.length + Short.BYTES * 2 <= Math.min(segmentSize, Short.MAX_VALUE),
+                "Cannot queue key '%s'", key);
+
+        int offset = offsetOf(writePosition);
+        // always keep room for the end of segment marker
+        if (offset + Short.BYTES + bytes.length > segmentSize - Short.BYTES) {
+            writeSegmentAt(writePosition).putShort(offset, END_OF_SEGMENT);
+            writePosition += segmentSize - offset;
+            offset = 0;
+        }
+
+        MappedByteBuffer segment = writeSegmentAt(writePosition);
+        segment.putShort(offset, (short) bytes.length);
+        segment.position(offset + Short.BYTES);
+        segment.put(bytes);
+
+        writePosition += Short.BYTES + bytes.length;
+        size++;
+    }
+
+    public String poll() throws IOException {
+        if (size == 0) {
+            return null;
+        }
+
+        int offset = offsetOf(readPosition);
+        MappedByteBuffer segment = readSegmentAt(readPosition);
+        short length = segment.getShort(offset);
+        if (length == END_OF_SEGMENT) {
+            readPosition += segmentSize - offset;
+            offset = 0;
+            segment = readSegmentAt(readPosition);
+            length = segment.getShort(offset);
+        }
+
+        byte[] bytes = new byte[length];
+        segment.position(offset + Short.BYTES);
+        segment.get(bytes);
+
+        readPosition += Short.BYTES + length;
+        size--;
+        return new String(bytes, UTF_8);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    private int offsetOf(long position) {
+        return (int) (position % segmentSize);
+    }
+
+    private MappedByteBuffer writeSegmentAt(long position) throws IOException {
+        long index = position / segmentSize;
+        if (index != writeSegmentIndex) {
+            writeSegment = map(index);
+            writeSegmentIndex = index;
+        }
+        return writeSegment;
+    }
+
+    private MappedByteBuffer readSegmentAt(long position) throws IOException {
+        long index = position / segmentSize;
+        if (index != readSegmentIndex) {
+            readSegment = index == writeSegmentIndex ? writeSegment : map(index);
+            readSegmentIndex = index;
+        }
+        return readSegment;
+    }
+
+    private MappedByteBuffer map(long index) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, index * segmentSize, segmentSize);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeSegment = null;
+        readSegment = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.graph;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Set of issue keys kept in a memory-mapped, open addressing hash table on disk.
+ * <p>
+ * Only the 64 bit murmur3 fingerprint of a key is stored, not the key itself. Two different keys sharing the same
+ * fingerprint is unlikely enough (a few in a million for 10 million keys) to be accepted for a visited set.
+ */
+public class DiskKeySet implements Closeable {
+    private static final long EMPTY = 0L;
+    private static final int MAX_CAPACITY = 1 << 28;
+    private static final HashFunction FINGERPRINT = Hashing.murmur3_128();
+
+    private final File directory;
+
+    private FileChannel channel;
+    private LongBuffer table;
+    private int capacity;
+    private int size;
+
+    public DiskKeySet(File directory, int initialCapacity) throws IOException {
+        checkArgument(Integer.bitCount(initialCapacity) == 1, "Capacity must be a power of 2, was %s", initialCapacity);
+        this.directory = directory;
+        allocate(initialCapacity);
+    }
+
+    public boolean add(String key) throws IOException {
+        if (size + 1 > capacity / 2) {
+            resize();
+        }
+        if (insert(table, capacity, fingerprint(key))) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean contains(String key) {
+        final long fingerprint = fingerprint(key);
+        final int mask = capacity - 1;
+        for (int slot = slotOf(fingerprint, mask); ; slot = (slot + 1) & mask) {
+            long current = table.get(slot);
+            if (current == EMPTY) {
+                return false;
+            }
+            if (current == fingerprint) {
+                return true;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static boolean insert(LongBuffer table, int capacity, long fingerprint) {
+        final int mask = capacity - 1;
+        for (int slot = slotOf(fingerprint, mask); ; slot = (slot + 1) & mask) {
+            long current = table.get(slot);
+            if (current == EMPTY) {
+                table.put(slot, fingerprint);
+                return true;
+            }
+            if (current == fingerprint) {
+                return false;
+            }
+        }
+    }
+
+    private void resize() throws IOException {
+        checkState(capacity < MAX_CAPACITY, "Cannot hold more than %s keys", MAX_CAPACITY / 2);
+
+        FileChannel oldChannel = channel;
+        LongBuffer oldTable = table;
+        int oldCapacity = capacity;
+
+        allocate(capacity * 2);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long fingerprint = oldTable.get(slot);
+            if (fingerprint != EMPTY) {
+                insert(table, capacity, fingerprint);
+            }
+        }
+        oldChannel.close();
+    }
+
+    private void allocate(int newCapacity) throws IOException {
+        File file = File.createTempFile("visited-", ".set", directory);
+        channel = FileChannel.open(file.toPath(), CREATE, READ, WRITE, TRUNCATE_EXISTING, DELETE_ON_CLOSE);
+        table = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) newCapacity * Long.BYTES)
+                .asLongBuffer();
+        capacity = newCapacity;
+    }
+
+    private static int slotOf(long fingerprint, int mask) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private static long fingerprint(String key) {
+        long fingerprint = FINGERPRINT.hashString(key, UTF_8).asLong();
+        return fingerprint == EMPTY ? 1L : fingerprint;
+    }
+
+    @Override
+    public void close() throws IOException {
+        table = null;
+        channel.close();
+    }
+}
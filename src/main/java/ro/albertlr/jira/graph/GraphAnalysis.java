@@ -0,0 +1,70 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.graph;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class GraphAnalysis {
+    private final DependencyGraph graph;
+    private final StronglyConnectedComponents components;
+
+    public GraphAnalysis(DependencyGraph graph) {
+        this.graph = graph;
+        this.components = StronglyConnectedComponents.of(graph);
+    }
+
+    /**
+     * @return the issues of every cycle found in the graph
+     */
+    public List<List<String>> cycles() {
+        List<List<String>> cycles = new ArrayList<>(components.cycleCount());
+        for (int component = 0; component < components.count(); component++) {
+            if (components.isCyclic(component)) {
+                cycles.add(keysOf(component));
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * Topological order of the condensed graph, dependencies first. Issues of the same cycle are grouped together
+     * as they have to be scheduled as a whole.
+     */
+    public List<List<String>> executionOrder() {
+        List<List<String>> order = new ArrayList<>(components.count());
+        for (int component = 0; component < components.count(); component++) {
+            order.add(keysOf(component));
+        }
+        return order;
+    }
+
+    private List<String> keysOf(int component) {
+        int[] members = components.members(component);
+        List<String> keys = new ArrayList<>(members.length);
+        for (int member : members) {
+            keys.add(graph.keyOf(member));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,255 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.graph;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.Status;
+import org.eclipse.collections.api.list.primitive.IntList;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import static ro.albertlr.jira.Jira.safe;
+
+/**
+ * Compact, immutable form of a depends-on graph that can be saved to and loaded from a binary file.
+ * <p>
+ * Issues are sorted by key so that the issue id is its index, the status names are stored once in a table and
+ * referred to by their index, and the links are kept as a single array of target ids with per issue offsets (each
+ * issue's targets sorted as well). The sorting makes comparing two snapshots a linear merge, see {@link SnapshotDiff}.
+ * <p>
+ * File layout: magic, version, status table, keys with their status code, link offsets and link targets.
+ */
+public final class GraphSnapshot {
+    private static final int MAGIC = 0x45324547; // "E2EG"
+    private static final int VERSION = 1;
+    public static final int NO_STATUS = -1;
+
+    private final String[] keys;
+    private final String[] statusNames;
+    private final int[] statusOf;
+    private final int[] offsets;
+    private final int[] targets;
+
+    private GraphSnapshot(String[] keys, String[] statusNames, int[] statusOf, int[] offsets, int[] targets) {
+        this.keys = keys;
+        this.statusNames = statusNames;
+        this.statusOf = statusOf;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * @param e2es             the result of the E2E lookup
+     * @param statusesOfIssues loads, in one go, the statuses of the issues whose status is not known from the lookup
+     *                         result (the sources)
+     */
+    public static GraphSnapshot of(Map<String, Set<Issue>> e2es,
+                                   Function<Set<String>, Map<String, String>> statusesOfIssues) {
+        Map<String, String> statuses = new HashMap<>();
+        for (Set<Issue> dependencies : e2es.values()) {
+            for (Issue dependency : safe(dependencies)) {
+                statuses.put(dependency.getKey(), statusName(dependency));
+            }
+        }
+        Set<String> unknown = new HashSet<>(e2es.keySet());
+        unknown.removeAll(statuses.keySet());
+        if (!unknown.isEmpty()) {
+            statuses.putAll(statusesOfIssues.apply(unknown));
+        }
+        return of(DependencyGraph.of(e2es), statuses);
+    }
+
+    public static GraphSnapshot of(DependencyGraph graph, Map<String, String> statuses) {
+        final int size = graph.size();
+
+        Integer[] order = new Integer[size];
+        for (int node = 0; node < size; node++) {
+            order[node] = node;
+        }
+        Arrays.sort(order, (one, other) -> graph.keyOf(one).compareTo(graph.keyOf(other)));
+
+        int[] idOf = new int[size];
+        String[] keys = new String[size];
+        for (int id = 0; id < size; id++) {
+            idOf[order[id]] = id;
+            keys[id] = graph.keyOf(order[id]);
+        }
+
+        ObjectIntHashMap<String> statusCodes = new ObjectIntHashMap<>();
+        List<String> statusNames = new ArrayList<>();
+        int[] statusOf = new int[size];
+        for (int id = 0; id < size; id++) {
+            String status = statuses.get(keys[id]);
+            if (status == null) {
+                statusOf[id] = NO_STATUS;
+            } else {
+                if (!statusCodes.containsKey(status)) {
+                    statusCodes.put(status, statusNames.size());
+                    statusNames.add(status);
+                }
+                statusOf[id] = statusCodes.get(status);
+            }
+        }
+
+        int[] offsets = new int[size + 1];
+        int[] targets = new int[graph.edgeCount()];
+        int position = 0;
+        for (int id = 0; id < size; id++) {
+            offsets[id] = position;
+            IntList successors = graph.successors(order[id]);
+            int start = position;
+            for (int i = 0; i < successors.size(); i++) {
+                targets[position++] = idOf[successors.get(i)];
+            }
+            Arrays.sort(targets, start, position);
+        }
+        offsets[size] = position;
+
+        return new GraphSnapshot(keys, statusNames.toArray(new String[0]), statusOf, offsets, targets);
+    }
+
+    public static GraphSnapshot read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(String.format("%s is not a graph snapshot", file));
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("Unsupported graph snapshot version %s in %s", version, file));
+            }
+
+            String[] statusNames = new String[in.readInt()];
+            for (int i = 0; i < statusNames.length; i++) {
+                statusNames[i] = in.readUTF();
+            }
+
+            int size = in.readInt();
+            String[] keys = new String[size];
+            int[] statusOf = new int[size];
+            for (int id = 0; id < size; id++) {
+                keys[id] = in.readUTF();
+                statusOf[id] = in.readInt();
+            }
+
+            int[] offsets = new int[size + 1];
+            for (int id = 0; id <= size; id++) {
+                offsets[id] = in.readInt();
+            }
+            int[] targets = new int[offsets[size]];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = in.readInt();
+            }
+
+            return new GraphSnapshot(keys, statusNames, statusOf, offsets, targets);
+        }
+    }
+
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(statusNames.length);
+            for (String statusName : statusNames) {
+                out.writeUTF(statusName);
+            }
+
+            out.writeInt(keys.length);
+            for (int id = 0; id < keys.length; id++) {
+                out.writeUTF(keys[id]);
+                out.writeInt(statusOf[id]);
+            }
+
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (int target : targets) {
+                out.writeInt(target);
+            }
+        }
+    }
+
+    public DependencyGraph toDependencyGraph() {
+        DependencyGraph graph = new DependencyGraph();
+        for (String key : keys) {
+            graph.intern(key);
+        }
+        for (int id = 0; id < keys.length; id++) {
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                graph.addEdge(id, targets[i]);
+            }
+        }
+        return graph;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public int linkCount() {
+        return targets.length;
+    }
+
+    public String keyOf(int id) {
+        return keys[id];
+    }
+
+    /**
+     * @return the status name of the issue or {@code null} if it is not known
+     */
+    public String statusOf(int id) {
+        return statusOf[id] == NO_STATUS ? null : statusNames[statusOf[id]];
+    }
+
+    public int firstLinkOf(int id) {
+        return offsets[id];
+    }
+
+    public int endLinkOf(int id) {
+        return offsets[id + 1];
+    }
+
+    public int targetAt(int link) {
+        return targets[link];
+    }
+
+    private static String statusName(Issue issue) {
+        return Optional.ofNullable(issue.getStatus())
+                .map(Status::getName)
+                .orElse(null);
+    }
+}
@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.graph;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Differences between two {@link GraphSnapshot}s. As both snapshots keep their issues and the targets of each issue
+ * sorted by key, the comparison is a single merge pass over both of them.
+ */
+@Getter
+public class SnapshotDiff {
+    private final List<String> addedIssues = new ArrayList<>();
+    private final List<String> removedIssues = new ArrayList<>();
+    private final List<StatusChange> statusChanges = new ArrayList<>();
+    private final List<LinkChange> addedLinks = new ArrayList<>();
+    private final List<LinkChange> removedLinks = new ArrayList<>();
+
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    public static class StatusChange {
+        private final String key;
+        private final String before;
+        private final String after;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    public static class LinkChange {
+        private final String from;
+        private final String to;
+    }
+
+    public static SnapshotDiff between(GraphSnapshot before, GraphSnapshot after) {
+        SnapshotDiff diff = new SnapshotDiff();
+
+        int beforeId = 0;
+        int afterId = 0;
+        while (beforeId < before.size() || afterId < after.size()) {
+            int comparison = compare(before, beforeId, after, afterId);
+            if (comparison < 0) {
+                diff.removedIssues.add(before.keyOf(beforeId));
+                diff.diffLinks(before, beforeId, after, -1);
+                beforeId++;
+            } else if (comparison > 0) {
+                diff.addedIssues.add(after.keyOf(afterId));
+                diff.diffLinks(before, -1, after, afterId);
+                afterId++;
+            } else {
+                String beforeStatus = before.statusOf(beforeId);
+                String afterStatus = after.statusOf(afterId);
+                if (!Objects.equals(beforeStatus, afterStatus)) {
+                    diff.statusChanges.add(new StatusChange(before.keyOf(beforeId), beforeStatus, afterStatus));
+                }
+                diff.diffLinks(before, beforeId, after, afterId);
+                beforeId++;
+                afterId++;
+            }
+        }
+
+        return diff;
+    }
+
+    /**
+     * Merges the sorted targets of the same issue in both snapshots; an id of {@code -1} means the issue is missing
+     * from that snapshot.
+     */
+    private void diffLinks(GraphSnapshot before, int beforeId, GraphSnapshot after, int afterId) {
+        final String from = beforeId >= 0 ? before.keyOf(beforeId) : after.keyOf(afterId);
+
+        int beforeLink = beforeId >= 0 ? before.firstLinkOf(beforeId) : 0;
+        int beforeEnd = beforeId >= 0 ? before.endLinkOf(beforeId) : 0;
+        int afterLink = afterId >= 0 ? after.firstLinkOf(afterId) : 0;
+        int afterEnd = afterId >= 0 ? after.endLinkOf(afterId) : 0;
+
+        while (beforeLink < beforeEnd || afterLink < afterEnd) {
+            String beforeTarget = beforeLink < beforeEnd ? before.keyOf(before.targetAt(beforeLink)) : null;
+            String afterTarget = afterLink < afterEnd ? after.keyOf(after.targetAt(afterLink)) : null;
+
+            int comparison = compareKeys(beforeTarget, afterTarget);
+            if (comparison < 0) {
+                removedLinks.add(new LinkChange(from, beforeTarget));
+                beforeLink++;
+            } else if (comparison > 0) {
+                addedLinks.add(new LinkChange(from, afterTarget));
+                afterLink++;
+            } else {
+                beforeLink++;
+                afterLink++;
+            }
+        }
+    }
+
+    private static int compare(GraphSnapshot before, int beforeId, GraphSnapshot after, int afterId) {
+        return compareKeys(
+                beforeId < before.size() ? before.keyOf(beforeId) : null,
+                afterId < after.size() ? after.keyOf(afterId) : null
+        );
+    }
+
+    /**
+     * Compares two keys where {@code null} stands for "past the end" and sorts after everything.
+     */
+    private static int compareKeys(String one, String other) {
+        if (one == null) {
+            return other == null ? 0 : 1;
+        }
+        if (other == null) {
+            return -1;
+        }
+        return one.compareTo(other);
+    }
+
+    public boolean isEmpty() {
+        return addedIssues.isEmpty() && removedIssues.isEmpty() && statusChanges.isEmpty()
+                && addedLinks.isEmpty() && removedLinks.isEmpty();
+    }
+}
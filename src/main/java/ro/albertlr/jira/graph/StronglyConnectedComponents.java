@@ -0,0 +1,161 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.graph;
+
+import org.eclipse.collections.api.list.primitive.IntList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tarjan's strongly connected components, implemented with explicit stacks instead of recursion so
+ * deep dependency chains cannot overflow the thread stack.
+ * <p>
+ * Components are numbered in the order Tarjan emits them, which is a reverse topological order of the
+ * condensed graph: every component comes after all the components it depends on. For a "depends on"
+ * graph this is directly the execution order.
+ */
+public final class StronglyConnectedComponents {
+    private static final int UNVISITED = -1;
+
+    private final int[] componentOf;
+    private final List<int[]> components;
+    private final boolean[] cyclic;
+
+    private StronglyConnectedComponents(int[] componentOf, List<int[]> components, boolean[] cyclic) {
+        this.componentOf = componentOf;
+        this.components = components;
+        this.cyclic = cyclic;
+    }
+
+    public static StronglyConnectedComponents of(DependencyGraph graph) {
+        final int n = graph.size();
+
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+
+        // explicit call stack: the node being visited and the position of the next successor to explore
+        int[] callStack = new int[n];
+        int[] nextEdge = new int[n];
+        int callStackSize = 0;
+
+        int[] componentOf = new int[n];
+        List<int[]> components = new ArrayList<>();
+        int counter = 0;
+
+        Arrays.fill(index, UNVISITED);
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] != UNVISITED) {
+                continue;
+            }
+
+            index[root] = lowLink[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            callStack[callStackSize] = root;
+            nextEdge[callStackSize] = 0;
+            callStackSize++;
+
+            while (callStackSize > 0) {
+                final int node = callStack[callStackSize - 1];
+                final IntList successors = graph.successors(node);
+
+                if (nextEdge[callStackSize - 1] < successors.size()) {
+                    final int successor = successors.get(nextEdge[callStackSize - 1]++);
+                    if (index[successor] == UNVISITED) {
+                        index[successor] = lowLink[successor] = counter++;
+                        stack[stackSize++] = successor;
+                        onStack[successor] = true;
+                        callStack[callStackSize] = successor;
+                        nextEdge[callStackSize] = 0;
+                        callStackSize++;
+                    } else if (onStack[successor]) {
+                        lowLink[node] = Math.min(lowLink[node], index[successor]);
+                    }
+                    continue;
+                }
+
+                // all successors explored: "return" to the caller
+                callStackSize--;
+                if (callStackSize > 0) {
+                    final int caller = callStack[callStackSize - 1];
+                    lowLink[caller] = Math.min(lowLink[caller], lowLink[node]);
+                }
+
+                if (lowLink[node] == index[node]) {
+                    int start = stackSize;
+                    do {
+                        start--;
+                    } while (stack[start] != node);
+
+                    int[] members = Arrays.copyOfRange(stack, start, stackSize);
+                    for (int member : members) {
+                        onStack[member] = false;
+                        componentOf[member] = components.size();
+                    }
+                    components.add(members);
+                    stackSize = start;
+                }
+            }
+        }
+
+        boolean[] cyclic = new boolean[components.size()];
+        for (int component = 0; component < components.size(); component++) {
+            int[] members = components.get(component);
+            cyclic[component] = members.length > 1 || graph.successors(members[0]).contains(members[0]);
+        }
+
+        return new StronglyConnectedComponents(componentOf, components, cyclic);
+    }
+
+    public int count() {
+        return components.size();
+    }
+
+    public int componentOf(int node) {
+        return componentOf[node];
+    }
+
+    public int[] members(int component) {
+        return components.get(component);
+    }
+
+    /**
+     * @return {@code true} if the component holds a cycle: more than one issue or an issue depending on itself
+     */
+    public boolean isCyclic(int component) {
+        return cyclic[component];
+    }
+
+    public int cycleCount() {
+        int cycles = 0;
+        for (boolean isCyclic : cyclic) {
+            if (isCyclic) {
+                cycles++;
+            }
+        }
+        return cycles;
+    }
+}
@@ -0,0 +1,230 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.journal;
+
+import com.atlassian.jira.rest.client.api.domain.input.LinkIssuesInput;
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.String.format;
+
+/**
+ * Append-only, write-ahead journal of the operations of a bulk job (clones, links), as JSON Lines: an operation is
+ * recorded as {@code planned} before it is sent to Jira and as {@code done} (with its result, e.g. the key of the
+ * clone) once it succeeded. Every write is forced to the disk before the operation goes on.
+ * <p>
+ * A job resumed from its journal skips the operations done and retries the ones planned but not done (in flight when
+ * the job stopped), so recovering costs as much as what is left to do.
+ */
+@Slf4j
+public class Journal implements AutoCloseable {
+    public static final String CLONE = "clone";
+    public static final String LINK = "link";
+
+    private static final String PLANNED = "planned";
+    private static final String DONE = "done";
+    private static final String NO_RESULT = "";
+
+    private static final Journal NONE = new Journal(null);
+
+    private final FileChannel channel;
+    private final Map<String, String> done = new ConcurrentHashMap<>();
+
+    private Journal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * A journal recording nothing.
+     */
+    public static Journal none() {
+        return NONE;
+    }
+
+    /**
+     * @param resume whether to continue the job recorded in the file; a new journal is started otherwise
+     */
+    public static Journal open(File file, boolean resume) throws IOException {
+        Map<String, String> done = Collections.emptyMap();
+        Set<String> inFlight = Collections.emptySet();
+        if (resume) {
+            if (!file.isFile()) {
+                throw new IOException(format("There is no journal %s to resume", file));
+            }
+            Journal read = new Journal(null);
+            inFlight = read.read(file);
+            done = read.done;
+            log.info("Resuming from {}: {} operations done, {} in flight will be retried", file, done.size(), inFlight.size());
+            if (log.isDebugEnabled()) {
+                inFlight.forEach(operation -> log.debug("    in flight: {}", operation));
+            }
+        }
+
+        FileChannel channel = resume
+                ? FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        Journal journal = new Journal(channel);
+        journal.done.putAll(done);
+        if (resume && endsWithPartialRecord(file)) {
+            journal.append("\n");
+        }
+        return journal;
+    }
+
+    public static String linkKey(LinkIssuesInput link) {
+        return link.getFromIssueKey() + '|' + link.getToIssueKey() + '|' + link.getLinkType();
+    }
+
+    public boolean isDone(String operation, String key) {
+        return done.containsKey(id(operation, key));
+    }
+
+    /**
+     * @return the result the operation was done with, {@code null} if it was not done
+     */
+    public String resultOf(String operation, String key) {
+        String result = done.get(id(operation, key));
+        return NO_RESULT.equals(result) ? null : result;
+    }
+
+    public void planned(String operation, Collection<String> keys) {
+        if (channel == null || keys.isEmpty()) {
+            return;
+        }
+        StringBuilder records = new StringBuilder();
+        for (String key : keys) {
+            records.append(record(operation, key, PLANNED, null));
+        }
+        append(records);
+    }
+
+    public void done(String operation, String key, String result) {
+        done(operation, Collections.singletonMap(key, result));
+    }
+
+    /**
+     * @param results the results of the operations done, by their key
+     */
+    public void done(String operation, Map<String, String> results) {
+        if (channel == null || results.isEmpty()) {
+            return;
+        }
+        StringBuilder records = new StringBuilder();
+        for (Map.Entry<String, String> result : results.entrySet()) {
+            records.append(record(operation, result.getKey(), DONE, result.getValue()));
+            done.put(id(operation, result.getKey()), result.getValue() == null ? NO_RESULT : result.getValue());
+        }
+        append(records);
+    }
+
+    private synchronized void append(CharSequence records) {
+        try {
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(records.toString());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the journal", e);
+        }
+    }
+
+    /**
+     * @return the operations planned but not done
+     */
+    private Set<String> read(File file) throws IOException {
+        Set<String> inFlight = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    JSONObject record = new JSONObject(line);
+                    String id = id(record.getString("op"), record.getString("key"));
+                    if (DONE.equals(record.getString("state"))) {
+                        done.put(id, record.optString("result", NO_RESULT));
+                        inFlight.remove(id);
+                    } else if (!done.containsKey(id)) {
+                        inFlight.add(id);
+                    }
+                } catch (JSONException e) {
+                    // the last record may be cut short by a crash
+                    log.warn("Skipping unreadable journal record {}", line);
+                }
+            }
+        }
+        return inFlight;
+    }
+
+    private static boolean endsWithPartialRecord(File file) throws IOException {
+        try (RandomAccessFile journal = new RandomAccessFile(file, "r")) {
+            if (journal.length() == 0) {
+                return false;
+            }
+            journal.seek(journal.length() - 1);
+            return journal.read() != '\n';
+        }
+    }
+
+    private static String record(String operation, String key, String state, String result) {
+        try {
+            JSONObject record = new JSONObject()
+                    .put("op", operation)
+                    .put("key", key)
+                    .put("state", state);
+            if (result != null) {
+                record.put("result", result);
+            }
+            return record.toString() + '\n';
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(format("Could not record %s %s", operation, key), e);
+        }
+    }
+
+    private static String id(String operation, String key) {
+        return operation + ' ' + key;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
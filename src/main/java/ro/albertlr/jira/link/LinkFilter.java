@@ -0,0 +1,223 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.link;
+
+import com.atlassian.jira.rest.client.api.domain.IssueLinkType.Direction;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static java.lang.String.format;
+
+/**
+ * A filter of {@link RawLink}s, compiled from an expression like
+ * {@code type ~ cover and direction = out and project in (JCLDALL, JVCLD)}.
+ * <ul>
+ * <li>fields: {@code type} (the name of the link type or how it reads either way, e.g. {@code is covered by}),
+ * {@code direction} ({@code out} when the link goes from the issue to the other one, {@code in} otherwise) and, of
+ * the issue at the other end, its {@code project}, {@code issuetype} and {@code status}</li>
+ * <li>comparisons, all ignoring the case: {@code =}, {@code !=}, {@code ~} (contains), {@code in (a, b, ...)}</li>
+ * <li>{@code and}, {@code or}, {@code not} and parentheses; values with spaces are quoted</li>
+ * </ul>
+ */
+public final class LinkFilter {
+    public static final Predicate<RawLink> ALL = link -> true;
+
+    private static final Map<String, Function<RawLink, List<String>>> FIELDS = ImmutableMap.of(
+            "type", link -> values(link.getTypeName(), link.getInward(), link.getOutward()),
+            "direction", link -> values(Direction.OUTBOUND.equals(link.getDirection()) ? "out" : "in"),
+            "project", link -> values(link.getOtherProject()),
+            "issuetype", link -> values(link.getOtherIssueType()),
+            "status", link -> values(link.getOtherStatus())
+    );
+
+    private final String expression;
+    private final List<String> tokens;
+    private int position;
+
+    private LinkFilter(String expression) {
+        this.expression = expression;
+        this.tokens = tokenize(expression);
+    }
+
+    /**
+     * @return the filter, {@link #ALL} for a blank expression
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static Predicate<RawLink> compile(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            return ALL;
+        }
+        LinkFilter parser = new LinkFilter(expression);
+        Predicate<RawLink> filter = parser.or();
+        if (parser.position < parser.tokens.size()) {
+            throw parser.error("Unexpected " + parser.tokens.get(parser.position));
+        }
+        return filter;
+    }
+
+    private Predicate<RawLink> or() {
+        Predicate<RawLink> filter = and();
+        while (accept("or")) {
+            filter = filter.or(and());
+        }
+        return filter;
+    }
+
+    private Predicate<RawLink> and() {
+        Predicate<RawLink> filter = unary();
+        while (accept("and")) {
+            filter = filter.and(unary());
+        }
+        return filter;
+    }
+
+    private Predicate<RawLink> unary() {
+        if (accept("not")) {
+            return unary().negate();
+        }
+        if (accept("(")) {
+            Predicate<RawLink> filter = or();
+            expect(")");
+            return filter;
+        }
+        return comparison();
+    }
+
+    private Predicate<RawLink> comparison() {
+        String field = next("a field").toLowerCase(Locale.ROOT);
+        Function<RawLink, List<String>> values = FIELDS.get(field);
+        if (values == null) {
+            throw error(format("Unknown field %s, expected one of %s", field, FIELDS.keySet()));
+        }
+        String operator = next("a comparison").toLowerCase(Locale.ROOT);
+        switch (operator) {
+            case "=": {
+                String value = value();
+                return link -> values.apply(link).stream().anyMatch(value::equalsIgnoreCase);
+            }
+            case "!=": {
+                String value = value();
+                return link -> values.apply(link).stream().noneMatch(value::equalsIgnoreCase);
+            }
+            case "~": {
+                String value = value().toLowerCase(Locale.ROOT);
+                return link -> values.apply(link).stream()
+                        .anyMatch(actual -> actual.toLowerCase(Locale.ROOT).contains(value));
+            }
+            case "in": {
+                expect("(");
+                List<String> expected = new ArrayList<>();
+                do {
+                    expected.add(value());
+                } while (accept(","));
+                expect(")");
+                return link -> values.apply(link).stream()
+                        .anyMatch(actual -> expected.stream().anyMatch(actual::equalsIgnoreCase));
+            }
+            default:
+                throw error(format("Unknown comparison %s, expected one of =, !=, ~, in", operator));
+        }
+    }
+
+    private String value() {
+        String value = next("a value");
+        if (value.length() > 1 && (value.charAt(0) == '"' || value.charAt(0) == '\'')) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private boolean accept(String token) {
+        if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(token)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("Expected " + token);
+        }
+    }
+
+    private String next(String expected) {
+        if (position >= tokens.size()) {
+            throw error("Expected " + expected);
+        }
+        return tokens.get(position++);
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(format("%s at token %d of the link filter: %s", message, position + 1, expression));
+    }
+
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')' || c == ',' || c == '=' || c == '~') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '!') {
+                if (i + 1 >= expression.length() || expression.charAt(i + 1) != '=') {
+                    throw new IllegalArgumentException(
+                            format("Unexpected character ! at %d of the link filter: %s", i + 1, expression));
+                }
+                tokens.add("!=");
+                i += 2;
+            } else if (c == '"' || c == '\'') {
+                int end = expression.indexOf(c, i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException(format("Unterminated quote in the link filter: %s", expression));
+                }
+                tokens.add(expression.substring(i, end + 1));
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < expression.length() && !Character.isWhitespace(expression.charAt(i))
+                        && "()=~,!\"'".indexOf(expression.charAt(i)) < 0) {
+                    i++;
+                }
+                tokens.add(expression.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> values(String... values) {
+        List<String> present = new ArrayList<>(values.length);
+        for (String value : values) {
+            if (value != null) {
+                present.add(value);
+            }
+        }
+        return present;
+    }
+}
@@ -0,0 +1,151 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.link;
+
+import com.atlassian.jira.rest.client.api.domain.input.LinkIssuesInput;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Links to be created later, saved as JSON Lines so that they can be reviewed (and edited) before being applied by
+ * the {@code apply-plan} action. Each line is one link: {@code {"issue": ..., "from": ..., "to": ..., "type": ...}}
+ * where {@code issue} is the issue the link is replicated on, i.e. one of its ends.
+ * <p>
+ * Applying a plan records the number of entries applied so far next to it (see {@link #progressFileOf(File)}), so an
+ * interrupted apply resumes after the last applied entry.
+ */
+public final class LinkPlan {
+    private static final String PROGRESS_SUFFIX = ".applied";
+
+    private LinkPlan() {
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    public static class Entry {
+        private final String issue;
+        private final String from;
+        private final String to;
+        private final String type;
+
+        public static Entry of(String issueKey, LinkIssuesInput link) {
+            return new Entry(issueKey, link.getFromIssueKey(), link.getToIssueKey(), link.getLinkType());
+        }
+
+        public LinkIssuesInput toInput(String linkType) {
+            return new LinkIssuesInput(from, to, linkType);
+        }
+    }
+
+    /**
+     * Saves the plan, discarding the progress of any previous plan saved to the same file.
+     */
+    public static void write(File file, Collection<Entry> entries) throws IOException {
+        Files.deleteIfExists(progressFileOf(file).toPath());
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (Entry entry : entries) {
+                writer.write(toJson(entry));
+                writer.newLine();
+            }
+        }
+    }
+
+    public static List<Entry> read(File file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    JSONObject json = new JSONObject(line);
+                    entries.add(new Entry(
+                            json.getString("issue"),
+                            json.getString("from"),
+                            json.getString("to"),
+                            json.getString("type")
+                    ));
+                } catch (JSONException e) {
+                    throw new IOException(format("Invalid link plan entry at %s:%d", file, lineNumber), e);
+                }
+            }
+        }
+        return entries;
+    }
+
+    public static File progressFileOf(File plan) {
+        return new File(plan.getPath() + PROGRESS_SUFFIX);
+    }
+
+    /**
+     * @return the number of entries of the plan already applied, 0 if it was not applied yet
+     */
+    public static int readProgress(File plan) throws IOException {
+        File progress = progressFileOf(plan);
+        if (!progress.isFile()) {
+            return 0;
+        }
+        String applied = new String(Files.readAllBytes(progress.toPath()), StandardCharsets.UTF_8).trim();
+        try {
+            return Integer.parseInt(applied);
+        } catch (NumberFormatException e) {
+            throw new IOException(format("Invalid progress %s in %s", applied, progress), e);
+        }
+    }
+
+    public static void writeProgress(File plan, int applied) throws IOException {
+        File progress = progressFileOf(plan);
+        File temporary = new File(progress.getPath() + ".tmp");
+        Files.write(temporary.toPath(), String.valueOf(applied).getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary.toPath(), progress.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String toJson(Entry entry) throws IOException {
+        try {
+            return new JSONObject()
+                    .put("issue", entry.getIssue())
+                    .put("from", entry.getFrom())
+                    .put("to", entry.getTo())
+                    .put("type", entry.getType())
+                    .toString();
+        } catch (JSONException e) {
+            throw new IOException(format("Could not write %s", entry), e);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.link;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueLink;
+import com.atlassian.jira.rest.client.api.domain.IssueLinkType.Direction;
+import com.atlassian.jira.rest.client.api.domain.input.LinkIssuesInput;
+import com.github.rholder.retry.Retryer;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.Utils;
+import ro.albertlr.jira.journal.Journal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+import static ro.albertlr.jira.Jira.safe;
+
+/**
+ * Creates links idempotently: the current links of the issue are read once, the desired links are compared to them
+ * and only the missing ones are created, at most {@code threads} at a time, each retried on its own. Re-running a
+ * partially failed replication only creates what is still missing. Links created are recorded in the {@link Journal}.
+ */
+@Slf4j
+public class LinkReplicator implements AutoCloseable {
+    public static final int DEFAULT_THREADS = 4;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private static final Set<String> LINK_FIELDS = ImmutableSet.of("issuelinks");
+
+    private final Jira jira;
+    private final ExecutorService executor;
+    private final int maxAttempts;
+    private final long timeoutMillis;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @Getter
+    @ToString
+    public static class Result {
+        private int created;
+        private int skipped;
+        private int failed;
+
+        public void add(Result other) {
+            created += other.created;
+            skipped += other.skipped;
+            failed += other.failed;
+        }
+    }
+
+    /**
+     * @param timeoutMillis how long to wait for a link to be created, 0 for no limit
+     */
+    public LinkReplicator(Jira jira, int threads, int maxAttempts, long timeoutMillis) {
+        this.jira = jira;
+        this.executor = Executors.newFixedThreadPool(
+                threads,
+                new ThreadFactoryBuilder().setNameFormat("link-%d").setDaemon(true).build()
+        );
+        this.maxAttempts = maxAttempts;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Makes sure the issue has the given links (each of which should have the issue on one of its ends).
+     */
+    public Result replicate(String issueKey, Collection<LinkIssuesInput> links) {
+        Map<String, Issue> loaded = jira.loadIssues(ImmutableSet.of(issueKey), LINK_FIELDS);
+        Issue issue = loaded.get(issueKey);
+        if (issue == null) {
+            throw new IllegalArgumentException(format("Could not load the links of %s", issueKey));
+        }
+        return replicate(issue, links);
+    }
+
+    /**
+     * @param issue the issue with its current links loaded
+     */
+    public Result replicate(Issue issue, Collection<LinkIssuesInput> links) {
+        return submit(issue, links).collect();
+    }
+
+    /**
+     * Replicates the links of several issues at once: their current links are read with a single search and the
+     * missing links of all of them share the {@code threads}.
+     *
+     * @param linksByIssue the links to make sure of, by the key of the issue they are replicated on
+     */
+    public Result replicate(Map<String, ? extends Collection<LinkIssuesInput>> linksByIssue) {
+        Map<String, Issue> loaded = jira.loadIssues(linksByIssue.keySet(), LINK_FIELDS);
+
+        Result total = new Result();
+        List<Pending> submitted = new ArrayList<>();
+        for (Map.Entry<String, ? extends Collection<LinkIssuesInput>> links : linksByIssue.entrySet()) {
+            Issue issue = loaded.get(links.getKey());
+            if (issue == null) {
+                log.error("Could not load the links of {}", links.getKey());
+                total.failed += links.getValue().size();
+                failed.addAndGet(links.getValue().size());
+                continue;
+            }
+            submitted.add(submit(issue, links.getValue()));
+        }
+
+        for (Pending pending : submitted) {
+            total.add(pending.collect());
+        }
+        return total;
+    }
+
+    private Pending submit(Issue issue, Collection<LinkIssuesInput> links) {
+        Set<String> existing = new HashSet<>();
+        for (IssueLink link : safe(issue.getIssueLinks())) {
+            existing.add(linkId(link.getIssueLinkType().getName(), link.getIssueLinkType().getDirection(), link.getTargetIssueKey()));
+        }
+
+        Journal journal = jira.journal();
+        Pending pending = new Pending(issue.getKey());
+        List<LinkIssuesInput> missing = new ArrayList<>();
+        for (LinkIssuesInput link : links) {
+            String id = linkId(issue.getKey(), link);
+            if (journal.isDone(Journal.LINK, Journal.linkKey(link)) || (id != null && !existing.add(id))) {
+                log.debug("{} is already linked to {} as {}", link.getFromIssueKey(), link.getToIssueKey(), link.getLinkType());
+                pending.result.skipped++;
+                continue;
+            }
+            missing.add(link);
+        }
+
+        journal.planned(Journal.LINK, missing.stream().map(Journal::linkKey).collect(Collectors.toList()));
+        for (LinkIssuesInput link : missing) {
+            pending.links.add(CompletableFuture.supplyAsync(() -> create(link), executor));
+        }
+        return pending;
+    }
+
+    /**
+     * Links of an issue submitted for creation.
+     */
+    private class Pending {
+        private final String issueKey;
+        private final Result result = new Result();
+        private final List<CompletableFuture<Boolean>> links = new ArrayList<>();
+
+        private Pending(String issueKey) {
+            this.issueKey = issueKey;
+        }
+
+        private Result collect() {
+            for (CompletableFuture<Boolean> link : links) {
+                if (link.join()) {
+                    result.created++;
+                } else {
+                    result.failed++;
+                }
+            }
+
+            created.addAndGet(result.created);
+            skipped.addAndGet(result.skipped);
+            failed.addAndGet(result.failed);
+            log.info("Links of {}: {} created, {} already there, {} failed", issueKey, result.created, result.skipped, result.failed);
+            return result;
+        }
+    }
+
+    private boolean create(LinkIssuesInput link) {
+        Retryer<Void> retryer = Utils.retryer(maxAttempts);
+        try {
+            retryer.call(() -> {
+                if (timeoutMillis > 0) {
+                    jira.issueClient().linkIssue(link).get(timeoutMillis, TimeUnit.MILLISECONDS);
+                } else {
+                    jira.issueClient().linkIssue(link).claim();
+                }
+                return null;
+            });
+            jira.journal().done(Journal.LINK, Journal.linkKey(link), null);
+            log.debug("Linked {} to {} as {}", link.getFromIssueKey(), link.getToIssueKey(), link.getLinkType());
+            return true;
+        } catch (Exception e) {
+            log.error("Could not link {} to {} as {}", link.getFromIssueKey(), link.getToIssueKey(), link.getLinkType(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Identifies a link as seen from the issue: type, direction and the issue at the other end. {@code null} if the
+     * link does not involve the issue.
+     */
+    private static String linkId(String issueKey, LinkIssuesInput link) {
+        if (issueKey.equals(link.getFromIssueKey())) {
+            return linkId(link.getLinkType(), Direction.OUTBOUND, link.getToIssueKey());
+        }
+        if (issueKey.equals(link.getToIssueKey())) {
+            return linkId(link.getLinkType(), Direction.INBOUND, link.getFromIssueKey());
+        }
+        return null;
+    }
+
+    private static String linkId(String linkType, Direction direction, String otherIssueKey) {
+        return linkType + '|' + direction + '|' + otherIssueKey;
+    }
+
+    public String summary() {
+        return format("%d links created, %d already there, %d failed", created.get(), skipped.get(), failed.get());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.link;
+
+import com.atlassian.jira.rest.client.api.domain.IssueLinkType.Direction;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import ro.albertlr.jira.Jira;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import static java.lang.String.format;
+
+/**
+ * A link of an issue as read from the raw {@code issuelinks} field, which (unlike the links of the REST client) tells
+ * the id of the link, needed to delete it, and the type of the issue at the other end.
+ */
+@Slf4j
+@Getter
+@AllArgsConstructor
+@ToString
+public class RawLink {
+    private static final String FIELDS = "issuelinks";
+
+    private final String id;
+    /**
+     * The issue the link was read from.
+     */
+    private final String issueKey;
+    private final String typeName;
+    private final String inward;
+    private final String outward;
+    /**
+     * {@link Direction#OUTBOUND} when the link goes from the issue to the other one.
+     */
+    private final Direction direction;
+    private final String otherKey;
+    private final String otherIssueType;
+    private final String otherStatus;
+    private final String otherSummary;
+
+    /**
+     * @return how the link reads from the issue, e.g. {@code is covered by}
+     */
+    public String getDescription() {
+        return Direction.OUTBOUND.equals(direction) ? outward : inward;
+    }
+
+    /**
+     * @return the project of the issue at the other end
+     */
+    public String getOtherProject() {
+        int dash = otherKey.lastIndexOf('-');
+        return dash > 0 ? otherKey.substring(0, dash) : otherKey;
+    }
+
+    /**
+     * @return the links by the key of their issue, see {@link #forEach(Jira, Iterable, BiConsumer)}; issues that could
+     * not be read are missing
+     */
+    public static Map<String, List<RawLink>> load(Jira jira, Iterable<String> issueKeys) {
+        Map<String, List<RawLink>> links = new LinkedHashMap<>();
+        forEach(jira, issueKeys, links::put);
+        return links;
+    }
+
+    /**
+     * Reads the links of the issues with a search per {@link Jira#SEARCH_CHUNK_SIZE} issues, loading only their
+     * {@code issuelinks} field, and hands them over chunk by chunk. A chunk the search fails for (e.g. one of its
+     * issues does not exist) is read one issue at a time, apart from the issues already handed over from its earlier
+     * pages; the issues that cannot be read are skipped.
+     *
+     * @param consumer takes the key of each issue with its links
+     */
+    public static void forEach(Jira jira, Iterable<String> issueKeys, BiConsumer<String, List<RawLink>> consumer) {
+        for (List<String> chunk : Iterables.partition(ImmutableSet.copyOf(issueKeys), Jira.SEARCH_CHUNK_SIZE)) {
+            String jql = "key in (" + String.join(",", chunk) + ")";
+            Set<String> delivered = new HashSet<>();
+            try {
+                // the server may return fewer issues per page than asked for
+                for (int startAt = 0; startAt < chunk.size(); ) {
+                    JSONObject page = jira.getJson(format("rest/api/2/search?jql=%s&fields=%s&startAt=%d&maxResults=%d",
+                            URLEncoder.encode(jql, "UTF-8"), FIELDS, startAt, chunk.size()));
+                    Map<String, List<RawLink>> read = parse(page);
+                    read.forEach((issueKey, links) -> {
+                        if (delivered.add(issueKey)) {
+                            consumer.accept(issueKey, links);
+                        }
+                    });
+                    startAt = read.isEmpty() ? chunk.size() : startAt + read.size();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not read the links of {}, reading them one by one: {}", chunk, e.getMessage());
+                for (String issueKey : chunk) {
+                    if (delivered.contains(issueKey)) {
+                        continue;
+                    }
+                    try {
+                        JSONObject issue = jira.getJson(format("rest/api/2/issue/%s?fields=%s", issueKey, FIELDS));
+                        consumer.accept(issueKey, parseIssue(issue));
+                    } catch (RuntimeException | JSONException exception) {
+                        log.error("Could not read the links of {}", issueKey, exception);
+                    }
+                }
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads the links of the issues matching the query, {@link Jira#SEARCH_CHUNK_SIZE} issues per page, loading only
+     * their {@code issuelinks} field.
+     *
+     * @param consumer takes the key of each issue with its links
+     */
+    public static void search(Jira jira, String jql, BiConsumer<String, List<RawLink>> consumer) {
+        try {
+            String query = URLEncoder.encode(jql, "UTF-8");
+            for (int startAt = 0, total = 1; startAt < total; ) {
+                JSONObject page = jira.getJson(format("rest/api/2/search?jql=%s&fields=%s&startAt=%d&maxResults=%d",
+                        query, FIELDS, startAt, Jira.SEARCH_CHUNK_SIZE));
+                Map<String, List<RawLink>> read = parse(page);
+                read.forEach(consumer);
+                total = read.isEmpty() ? startAt : page.optInt("total", 0);
+                startAt += read.size();
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param searchResult a search result with the {@code issuelinks} field of its issues
+     */
+    public static Map<String, List<RawLink>> parse(JSONObject searchResult) {
+        Map<String, List<RawLink>> links = new LinkedHashMap<>();
+        try {
+            JSONArray issues = searchResult.getJSONArray("issues");
+            for (int i = 0; i < issues.length(); i++) {
+                JSONObject issue = issues.getJSONObject(i);
+                links.put(issue.getString("key"), parseIssue(issue));
+            }
+        } catch (JSONException e) {
+            throw new IllegalStateException("Unexpected search result", e);
+        }
+        return links;
+    }
+
+    private static List<RawLink> parseIssue(JSONObject issue) throws JSONException {
+        String issueKey = issue.getString("key");
+        JSONObject fields = issue.optJSONObject("fields");
+        JSONArray issueLinks = fields != null ? fields.optJSONArray(FIELDS) : null;
+        if (issueLinks == null) {
+            return Collections.emptyList();
+        }
+        List<RawLink> links = new ArrayList<>(issueLinks.length());
+        for (int i = 0; i < issueLinks.length(); i++) {
+            JSONObject link = issueLinks.getJSONObject(i);
+            JSONObject type = link.getJSONObject("type");
+            boolean outbound = link.has("outwardIssue");
+            JSONObject other = link.getJSONObject(outbound ? "outwardIssue" : "inwardIssue");
+            JSONObject otherFields = other.optJSONObject("fields");
+            links.add(new RawLink(
+                    link.getString("id"),
+                    issueKey,
+                    type.getString("name"),
+                    type.optString("inward", null),
+                    type.optString("outward", null),
+                    outbound ? Direction.OUTBOUND : Direction.INBOUND,
+                    other.getString("key"),
+                    nameOf(otherFields, "issuetype"),
+                    nameOf(otherFields, "status"),
+                    otherFields != null ? otherFields.optString("summary", null) : null
+            ));
+        }
+        return links;
+    }
+
+    private static String nameOf(JSONObject fields, String field) {
+        JSONObject value = fields != null ? fields.optJSONObject(field) : null;
+        return value != null ? value.optString("name", null) : null;
+    }
+}
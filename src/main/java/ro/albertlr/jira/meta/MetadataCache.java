@@ -0,0 +1,464 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.meta;
+
+import com.atlassian.jira.rest.client.api.GetCreateIssueMetadataOptionsBuilder;
+import com.atlassian.jira.rest.client.api.JiraRestClient;
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.atlassian.jira.rest.client.api.domain.BasicComponent;
+import com.atlassian.jira.rest.client.api.domain.BasicProject;
+import com.atlassian.jira.rest.client.api.domain.CimFieldInfo;
+import com.atlassian.jira.rest.client.api.domain.CimIssueType;
+import com.atlassian.jira.rest.client.api.domain.CimProject;
+import com.atlassian.jira.rest.client.api.domain.CustomFieldOption;
+import com.atlassian.jira.rest.client.api.domain.FieldSchema;
+import com.atlassian.jira.rest.client.api.domain.IssuelinksType;
+import com.atlassian.jira.rest.client.api.domain.Project;
+import com.atlassian.jira.rest.client.api.domain.User;
+import com.atlassian.jira.rest.client.api.domain.Version;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+
+/**
+ * Server metadata that rarely changes: projects, create metadata (the fields of an issue type in a project), link
+ * types and whether users are active. Everything is loaded lazily, on first use, and kept in a file so that it is
+ * shared by all the actions and by the following runs; entries older than the time to live are loaded again.
+ * <p>
+ * File layout: magic, version, then the projects, create metadata (with the allowed values of the fields), link
+ * types and users, each entry with the time it was loaded.
+ */
+@Slf4j
+public class MetadataCache {
+    private static final int MAGIC = 0x4a4d4554; // "JMET"
+    private static final int VERSION = 2;
+
+    private final Supplier<JiraRestClient> restClient;
+    private final File file;
+    private final long ttlMillis;
+
+    private final Map<String, Entry<ProjectInfo>> projects = new ConcurrentHashMap<>();
+    private final Map<String, Entry<CreateMeta>> createMetas = new ConcurrentHashMap<>();
+    private final Map<String, Entry<Boolean>> activeUsers = new ConcurrentHashMap<>();
+    private volatile Entry<List<LinkTypeInfo>> linkTypes;
+
+    private volatile boolean loaded;
+    private volatile boolean changed;
+
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    public static class ProjectInfo {
+        private final String key;
+        private final Long id;
+        private final String name;
+        private final String self;
+
+        public BasicProject toBasicProject() {
+            return new BasicProject(URI.create(self), key, id, name);
+        }
+    }
+
+    /**
+     * The fields that can be set when creating an issue of a type in a project, by field id.
+     */
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    public static class CreateMeta {
+        private final String projectKey;
+        private final String issueTypeName;
+        private final Map<String, FieldInfo> fields;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    public static class FieldInfo {
+        private final String id;
+        private final String name;
+        private final boolean required;
+        /**
+         * The type of the value (string, number, array, option, user, ...), {@code null} if not known.
+         */
+        private final String type;
+        /**
+         * The type of the items when the value is an array, {@code null} otherwise.
+         */
+        private final String items;
+        /**
+         * The ids of the values the field can take by their name (the value of an option), {@code null} if the values
+         * are not restricted.
+         */
+        private final Map<String, String> allowedValues;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    public static class LinkTypeInfo {
+        private final String name;
+        private final String inward;
+        private final String outward;
+    }
+
+    @AllArgsConstructor
+    private static class Entry<T> {
+        private final long loadedAt;
+        private final T value;
+    }
+
+    public MetadataCache(Supplier<JiraRestClient> restClient, File file, long ttlMillis) {
+        this.restClient = restClient;
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public ProjectInfo project(String projectKey) {
+        return cached(projects, projectKey, key -> {
+            Project project = restClient.get().getProjectClient().getProject(key).claim();
+            log.info("Loading project {}: {}", key, project.getDescription());
+            return new ProjectInfo(project.getKey(), project.getId(), project.getName(), String.valueOf(project.getSelf()));
+        });
+    }
+
+    /**
+     * @return the create metadata of the issue type in the project, {@code null} if issues of that type cannot be
+     * created in the project
+     */
+    public CreateMeta createMeta(String projectKey, String issueTypeName) {
+        return cached(createMetas, projectKey + '|' + issueTypeName, key -> {
+            Iterable<CimProject> metadata = restClient.get().getIssueClient()
+                    .getCreateIssueMetadata(new GetCreateIssueMetadataOptionsBuilder()
+                            .withProjectKeys(projectKey)
+                            .withIssueTypeNames(issueTypeName)
+                            .withExpandedIssueTypesFields()
+                            .build())
+                    .claim();
+            for (CimProject project : metadata) {
+                for (CimIssueType issueType : project.getIssueTypes()) {
+                    if (issueTypeName.equals(issueType.getName())) {
+                        Map<String, FieldInfo> fields = new LinkedHashMap<>();
+                        for (CimFieldInfo field : issueType.getFields().values()) {
+                            FieldSchema schema = field.getSchema();
+                            fields.put(field.getId(), new FieldInfo(
+                                    field.getId(),
+                                    field.getName(),
+                                    field.isRequired(),
+                                    schema != null ? schema.getType() : null,
+                                    schema != null ? schema.getItems() : null,
+                                    allowedValues(field.getAllowedValues())
+                            ));
+                        }
+                        log.debug("Loaded the create metadata of {} in {}: {} fields", issueTypeName, projectKey, fields.size());
+                        return new CreateMeta(projectKey, issueTypeName, ImmutableMap.copyOf(fields));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static Map<String, String> allowedValues(Iterable<Object> values) {
+        if (values == null) {
+            return null;
+        }
+        Map<String, String> ids = new LinkedHashMap<>();
+        for (Object value : values) {
+            if (value instanceof Version) {
+                putAllowed(ids, ((Version) value).getName(), ((Version) value).getId());
+            } else if (value instanceof BasicComponent) {
+                putAllowed(ids, ((BasicComponent) value).getName(), ((BasicComponent) value).getId());
+            } else if (value instanceof CustomFieldOption) {
+                putAllowed(ids, ((CustomFieldOption) value).getValue(), ((CustomFieldOption) value).getId());
+            } else if (value instanceof JSONObject) {
+                JSONObject json = (JSONObject) value;
+                putAllowed(ids, json.optString("name", json.optString("value", null)), json.optString("id", null));
+            }
+        }
+        return ImmutableMap.copyOf(ids);
+    }
+
+    private static void putAllowed(Map<String, String> ids, String name, Object id) {
+        if (name != null && id != null) {
+            ids.putIfAbsent(name, String.valueOf(id));
+        }
+    }
+
+    public List<LinkTypeInfo> linkTypes() {
+        ensureLoaded();
+        Entry<List<LinkTypeInfo>> entry = linkTypes;
+        if (entry == null || expired(entry)) {
+            List<LinkTypeInfo> types = new ArrayList<>();
+            for (IssuelinksType type : restClient.get().getMetadataClient().getIssueLinkTypes().claim()) {
+                types.add(new LinkTypeInfo(type.getName(), type.getInward(), type.getOutward()));
+            }
+            log.debug("Loaded {} link types", types.size());
+            entry = new Entry<>(System.currentTimeMillis(), ImmutableList.copyOf(types));
+            linkTypes = entry;
+            changed = true;
+        }
+        return entry.value;
+    }
+
+    /**
+     * @return the link type with this name (or inward/outward description), {@code null} if there is no such type
+     */
+    public LinkTypeInfo linkType(String nameOrDescription) {
+        for (LinkTypeInfo type : linkTypes()) {
+            if (type.name.equalsIgnoreCase(nameOrDescription)
+                    || nameOrDescription.equalsIgnoreCase(type.inward)
+                    || nameOrDescription.equalsIgnoreCase(type.outward)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the user exists and is active
+     * @throws RuntimeException if the user could not be loaded for any other reason than it not existing; such
+     *                          failures are not cached
+     */
+    public boolean isActive(String userName) {
+        Boolean active = cached(activeUsers, userName, name -> {
+            try {
+                User user = restClient.get().getUserClient().getUser(name).claim();
+                return user.isActive();
+            } catch (RestClientException e) {
+                if (e.getStatusCode().orElse(0) == HTTP_NOT_FOUND) {
+                    log.debug("There is no user {}: {}", name, e.getMessage());
+                    return false;
+                }
+                throw e;
+            }
+        });
+        return Boolean.TRUE.equals(active);
+    }
+
+    private <T> T cached(Map<String, Entry<T>> cache, String key, Function<String, T> loader) {
+        ensureLoaded();
+        Entry<T> entry = cache.get(key);
+        if (entry == null || expired(entry)) {
+            T value = loader.apply(key);
+            if (value == null) {
+                return null;
+            }
+            entry = new Entry<>(System.currentTimeMillis(), value);
+            cache.put(key, entry);
+            changed = true;
+        }
+        return entry.value;
+    }
+
+    private boolean expired(Entry<?> entry) {
+        return System.currentTimeMillis() - entry.loadedAt > ttlMillis;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    if (file.isFile()) {
+                        try {
+                            read();
+                        } catch (IOException e) {
+                            log.warn("Could not read the metadata cache {}, starting with an empty one: {}", file, e.getMessage());
+                            projects.clear();
+                            createMetas.clear();
+                            activeUsers.clear();
+                            linkTypes = null;
+                        }
+                    }
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the cache if anything was loaded since it was read.
+     */
+    public synchronized void save() throws IOException {
+        if (!changed) {
+            return;
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(projects.size());
+            for (Entry<ProjectInfo> entry : projects.values()) {
+                out.writeLong(entry.loadedAt);
+                ProjectInfo project = entry.value;
+                out.writeUTF(project.key);
+                out.writeLong(project.id != null ? project.id : -1);
+                writeNullable(out, project.name);
+                out.writeUTF(project.self);
+            }
+
+            out.writeInt(createMetas.size());
+            for (Entry<CreateMeta> entry : createMetas.values()) {
+                out.writeLong(entry.loadedAt);
+                CreateMeta createMeta = entry.value;
+                out.writeUTF(createMeta.projectKey);
+                out.writeUTF(createMeta.issueTypeName);
+                out.writeInt(createMeta.fields.size());
+                for (FieldInfo field : createMeta.fields.values()) {
+                    out.writeUTF(field.id);
+                    writeNullable(out, field.name);
+                    out.writeBoolean(field.required);
+                    writeNullable(out, field.type);
+                    writeNullable(out, field.items);
+                    out.writeInt(field.allowedValues != null ? field.allowedValues.size() : -1);
+                    if (field.allowedValues != null) {
+                        for (Map.Entry<String, String> allowed : field.allowedValues.entrySet()) {
+                            out.writeUTF(allowed.getKey());
+                            out.writeUTF(allowed.getValue());
+                        }
+                    }
+                }
+            }
+
+            Entry<List<LinkTypeInfo>> types = linkTypes;
+            out.writeBoolean(types != null);
+            if (types != null) {
+                out.writeLong(types.loadedAt);
+                out.writeInt(types.value.size());
+                for (LinkTypeInfo type : types.value) {
+                    out.writeUTF(type.name);
+                    writeNullable(out, type.inward);
+                    writeNullable(out, type.outward);
+                }
+            }
+
+            out.writeInt(activeUsers.size());
+            for (Map.Entry<String, Entry<Boolean>> user : activeUsers.entrySet()) {
+                out.writeLong(user.getValue().loadedAt);
+                out.writeUTF(user.getKey());
+                out.writeBoolean(user.getValue().value);
+            }
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        changed = false;
+        log.debug("Saved the metadata cache to {}", file);
+    }
+
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(format("%s is not a metadata cache", file));
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(format("Unsupported metadata cache version %s in %s", version, file));
+            }
+
+            for (int count = in.readInt(); count > 0; count--) {
+                long loadedAt = in.readLong();
+                String key = in.readUTF();
+                long id = in.readLong();
+                ProjectInfo project = new ProjectInfo(key, id >= 0 ? id : null, readNullable(in), in.readUTF());
+                projects.put(key, new Entry<>(loadedAt, project));
+            }
+
+            for (int count = in.readInt(); count > 0; count--) {
+                long loadedAt = in.readLong();
+                String projectKey = in.readUTF();
+                String issueTypeName = in.readUTF();
+                Map<String, FieldInfo> fields = new LinkedHashMap<>();
+                for (int fieldCount = in.readInt(); fieldCount > 0; fieldCount--) {
+                    String id = in.readUTF();
+                    String name = readNullable(in);
+                    boolean required = in.readBoolean();
+                    String type = readNullable(in);
+                    String items = readNullable(in);
+                    Map<String, String> allowedValues = null;
+                    int allowedCount = in.readInt();
+                    if (allowedCount >= 0) {
+                        allowedValues = new LinkedHashMap<>();
+                        for (; allowedCount > 0; allowedCount--) {
+                            allowedValues.put(in.readUTF(), in.readUTF());
+                        }
+                        allowedValues = ImmutableMap.copyOf(allowedValues);
+                    }
+                    FieldInfo field = new FieldInfo(id, name, required, type, items, allowedValues);
+                    fields.put(field.id, field);
+                }
+                createMetas.put(projectKey + '|' + issueTypeName,
+                        new Entry<>(loadedAt, new CreateMeta(projectKey, issueTypeName, ImmutableMap.copyOf(fields))));
+            }
+
+            if (in.readBoolean()) {
+                long loadedAt = in.readLong();
+                List<LinkTypeInfo> types = new ArrayList<>();
+                for (int count = in.readInt(); count > 0; count--) {
+                    types.add(new LinkTypeInfo(in.readUTF(), readNullable(in), readNullable(in)));
+                }
+                linkTypes = new Entry<>(loadedAt, ImmutableList.copyOf(types));
+            }
+
+            for (int count = in.readInt(); count > 0; count--) {
+                long loadedAt = in.readLong();
+                activeUsers.put(in.readUTF(), new Entry<>(loadedAt, in.readBoolean()));
+            }
+        }
+        log.debug("Read the metadata cache {}: {} projects, {} create metadata, {} users",
+                file, projects.size(), createMetas.size(), activeUsers.size());
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,192 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.search;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.csv.Output;
+import ro.albertlr.jira.csv.RecordSink;
+import ro.albertlr.jira.csv.RecordSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Search export that only fetches what changed since the previous run.
+ * <p>
+ * The first run (or one whose query, fields, output settings or files do not match the checkpoint any more) exports
+ * everything and saves a {@link SearchCheckpoint}. Later runs only search the issues updated since the checkpoint
+ * (minus a safety margin for clock differences), then stream the previous output to a new one replacing the records of
+ * the changed issues and appending the new ones. Only the changes are kept in memory.
+ * <p>
+ * Issues that stop matching the query are not removed from the output; run a full export (drop the checkpoint) from
+ * time to time if that matters.
+ */
+@Slf4j
+@Builder
+public class IncrementalExport {
+    private static final Pattern ORDER_BY = Pattern.compile("(?i)(^|\\s+)order\\s+by\\s+");
+    private static final String PARTIAL_PREFIX = ".partial-";
+
+    private final Function<String, JqlSearch> search;
+    private final String jql;
+    private final List<String> fields;
+    private final Output output;
+    private final File checkpointFile;
+    private final long safetyMarginMillis;
+
+    /**
+     * @return the number of issues exported by this run
+     */
+    public long run() throws IOException {
+        checkArgument(fields.contains(IssueFields.KEY), "An incremental export needs the %s field", IssueFields.KEY);
+
+        SearchCheckpoint previous = SearchCheckpoint.readIfExists(checkpointFile);
+        if (previous == null || !previous.canContinue(jql, fields, output)) {
+            if (previous != null) {
+                log.info("Checkpoint {} does not match this export, exporting everything", checkpointFile);
+            }
+            return exportAll();
+        }
+        return exportChanges(previous);
+    }
+
+    private long exportAll() throws IOException {
+        long maxUpdated = Long.MIN_VALUE;
+        Set<String> keys = new HashSet<>();
+
+        RecordSink sink = output.open(headers());
+        try (RecordSink toClose = sink) {
+            for (Issue issue : search.apply(jql)) {
+                sink.write(IssueFields.project(issue, fields));
+                keys.add(issue.getKey());
+                maxUpdated = Math.max(maxUpdated, updatedOf(issue));
+            }
+        }
+
+        new SearchCheckpoint(jql, fields, output, maxUpdated, sink.getFiles(), keys).write(checkpointFile);
+        log.info("Exported {} issues to {}", sink.getRowCount(), sink.getFiles());
+        return sink.getRowCount();
+    }
+
+    private long exportChanges(SearchCheckpoint previous) throws IOException {
+        long since = previous.getMaxUpdated() - safetyMarginMillis;
+        String deltaJql = updatedSince(jql, TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - since) + 1);
+        log.debug("Searching changes with {}", deltaJql);
+
+        long maxUpdated = previous.getMaxUpdated();
+        Map<String, List<String>> changes = new LinkedHashMap<>();
+        for (Issue issue : search.apply(deltaJql)) {
+            changes.put(issue.getKey(), IssueFields.project(issue, fields));
+            maxUpdated = Math.max(maxUpdated, updatedOf(issue));
+        }
+        if (changes.isEmpty()) {
+            log.info("No issue changed since the previous export");
+            return 0;
+        }
+
+        Set<String> keys = new HashSet<>(previous.getKeys());
+        long updated = changes.keySet().stream().filter(keys::contains).count();
+        int keyColumn = fields.indexOf(IssueFields.KEY);
+
+        Output partial = output.toBuilder()
+                .path(partialPath(output.getPath()))
+                .build();
+        RecordSink sink = partial.open(headers());
+        try (RecordSink toClose = sink;
+             RecordSource before = output.read(previous.getFiles(), headers())) {
+            for (List<String> record : before) {
+                List<String> change = changes.remove(record.get(keyColumn));
+                sink.write(change != null ? change : record);
+            }
+            for (Map.Entry<String, List<String>> added : changes.entrySet()) {
+                sink.write(added.getValue());
+                keys.add(added.getKey());
+            }
+        }
+
+        List<File> files = promote(sink.getFiles());
+        new SearchCheckpoint(jql, fields, output, maxUpdated, files, keys).write(checkpointFile);
+        log.info("Merged {} updated and {} new issues into {}", updated, keys.size() - previous.getKeys().size(), files);
+        return updated + keys.size() - previous.getKeys().size();
+    }
+
+    /**
+     * Moves the files written next to the output over the output files.
+     */
+    private List<File> promote(List<File> partialFiles) throws IOException {
+        List<File> files = new ArrayList<>(partialFiles.size());
+        Iterator<File> partialFile = partialFiles.iterator();
+        for (int shard = output.getRowsPerFile() > 0 ? 1 : 0; partialFile.hasNext(); shard++) {
+            File file = output.fileFor(shard);
+            Files.move(partialFile.next().toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            files.add(file);
+        }
+        return files;
+    }
+
+    private String[] headers() {
+        return fields.toArray(new String[0]);
+    }
+
+    private static long updatedOf(Issue issue) {
+        return issue.getUpdateDate() == null ? Long.MIN_VALUE : issue.getUpdateDate().getMillis();
+    }
+
+    private static String partialPath(String path) {
+        File file = new File(path);
+        return new File(file.getParentFile(), PARTIAL_PREFIX + file.getName()).getPath();
+    }
+
+    /**
+     * Restricts the query to the issues updated in the last given minutes. A relative date is used so the condition
+     * does not depend on the time zone of the Jira user.
+     */
+    static String updatedSince(String jql, long minutes) {
+        String condition = String.format("updated >= \"-%sm\"", minutes);
+
+        String where = jql;
+        String orderBy = "";
+        Matcher matcher = ORDER_BY.matcher(jql);
+        if (matcher.find()) {
+            where = jql.substring(0, matcher.start());
+            orderBy = " " + jql.substring(matcher.start()).trim();
+        }
+        return where.trim().isEmpty()
+                ? condition + orderBy
+                : "(" + where.trim() + ") AND " + condition + orderBy;
+    }
+}
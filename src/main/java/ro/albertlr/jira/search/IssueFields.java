@@ -0,0 +1,128 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.search;
+
+import com.atlassian.jira.rest.client.api.domain.BasicComponent;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueField;
+import com.atlassian.jira.rest.client.api.domain.IssueLink;
+import com.atlassian.jira.rest.client.api.domain.Subtask;
+import com.atlassian.jira.rest.client.api.domain.User;
+import com.atlassian.jira.rest.client.api.domain.Version;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static java.util.Optional.ofNullable;
+import static ro.albertlr.jira.Jira.safe;
+
+/**
+ * Projection of an issue on a list of fields, as exported by the search actions. Fields are named by their Jira id
+ * ({@code summary}, {@code status}, {@code customfield_10000}, ...); {@code key} is always available.
+ */
+@UtilityClass
+public class IssueFields {
+    public static final String KEY = "key";
+    public static final List<String> DEFAULT_FIELDS = ImmutableList.of(KEY, "summary", "issuetype", "status", "assignee", "updated");
+
+    /**
+     * @return the fields to ask Jira for to be able to export the given ones
+     */
+    public static Set<String> toRequest(Collection<String> fields) {
+        Set<String> request = new LinkedHashSet<>(fields);
+        request.remove(KEY);
+        return request;
+    }
+
+    public static List<String> project(Issue issue, List<String> fields) {
+        List<String> values = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            values.add(ofNullable(valueOf(issue, field)).orElse(""));
+        }
+        return values;
+    }
+
+    public static String valueOf(Issue issue, String field) {
+        switch (field) {
+            case KEY:
+                return issue.getKey();
+            case "summary":
+                return issue.getSummary();
+            case "description":
+                return issue.getDescription();
+            case "issuetype":
+                return issue.getIssueType() == null ? null : issue.getIssueType().getName();
+            case "status":
+                return issue.getStatus() == null ? null : issue.getStatus().getName();
+            case "project":
+                return issue.getProject() == null ? null : issue.getProject().getKey();
+            case "priority":
+                return issue.getPriority() == null ? null : issue.getPriority().getName();
+            case "resolution":
+                return issue.getResolution() == null ? null : issue.getResolution().getName();
+            case "assignee":
+                return userName(issue.getAssignee());
+            case "reporter":
+                return userName(issue.getReporter());
+            case "created":
+                return Objects.toString(issue.getCreationDate(), null);
+            case "updated":
+                return Objects.toString(issue.getUpdateDate(), null);
+            case "labels":
+                return String.join(",", safe(issue.getLabels()));
+            case "components":
+                return join(issue.getComponents(), BasicComponent::getName);
+            case "fixVersions":
+                return join(issue.getFixVersions(), Version::getName);
+            case "versions":
+                return join(issue.getAffectedVersions(), Version::getName);
+            case "issuelinks":
+                return join(issue.getIssueLinks(), IssueLink::getTargetIssueKey);
+            case "subtasks":
+                return join(issue.getSubtasks(), Subtask::getIssueKey);
+            default:
+                IssueField issueField = issue.getField(field);
+                return issueField == null ? null : Objects.toString(issueField.getValue(), null);
+        }
+    }
+
+    private static String userName(User user) {
+        return user == null ? null : user.getName();
+    }
+
+    private static <T> String join(Iterable<T> values, Function<T, String> toString) {
+        if (values == null || Iterables.isEmpty(values)) {
+            return null;
+        }
+        return StreamSupport.stream(values.spliterator(), false)
+                .map(toString)
+                .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,102 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.search;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
+import com.google.common.collect.AbstractIterator;
+import io.atlassian.util.concurrent.Promise;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Jira;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Streams the result of a JQL query page by page, in the order of the query.
+ * <p>
+ * The first page tells the total number of issues (and the page size the server actually uses); from then on up to
+ * {@code parallelism} pages, each fetched with its own {@code startAt}, are kept in flight ahead of the page being
+ * consumed. So while one page is transformed and written the next ones are already being fetched. Use a stable order
+ * ({@code ORDER BY key}) for queries whose result may change while being exported.
+ */
+@Slf4j
+@Builder
+public class JqlSearch implements Iterable<Issue> {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private final Jira jira;
+    @Getter
+    private final String jql;
+    private final Set<String> fields;
+    @Builder.Default
+    private final int pageSize = DEFAULT_PAGE_SIZE;
+    @Builder.Default
+    private final int parallelism = DEFAULT_PARALLELISM;
+
+    @Override
+    public Iterator<Issue> iterator() {
+        return new PageIterator();
+    }
+
+    private class PageIterator extends AbstractIterator<Issue> {
+        private final Deque<Promise<SearchResult>> pages = new ArrayDeque<>();
+        private Iterator<Issue> page = Collections.emptyIterator();
+        private int total = -1;
+        private int effectivePageSize;
+        private int nextStartAt;
+
+        @Override
+        protected Issue computeNext() {
+            while (!page.hasNext()) {
+                if (total < 0) {
+                    SearchResult first = jira.search(jql, 0, pageSize, fields).claim();
+                    total = first.getTotal();
+                    // the server may cap the page size below the requested one
+                    effectivePageSize = first.getMaxResults() > 0 ? Math.min(first.getMaxResults(), pageSize) : pageSize;
+                    nextStartAt = effectivePageSize;
+                    log.debug("{} issues match {}, fetching {} per page", total, jql, effectivePageSize);
+                    page = Jira.safe(first.getIssues()).iterator();
+                    prefetch();
+                } else if (pages.isEmpty()) {
+                    return endOfData();
+                } else {
+                    SearchResult next = pages.poll().claim();
+                    prefetch();
+                    page = Jira.safe(next.getIssues()).iterator();
+                }
+            }
+            return page.next();
+        }
+
+        private void prefetch() {
+            while (pages.size() < parallelism && nextStartAt < total) {
+                pages.add(jira.search(jql, nextStartAt, effectivePageSize, fields));
+                nextStartAt += effectivePageSize;
+            }
+        }
+    }
+}
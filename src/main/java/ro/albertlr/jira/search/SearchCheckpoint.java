@@ -0,0 +1,154 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ro.albertlr.jira.csv.Output;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * State of the last run of an incremental search export: the query and fields it exported, how it wrote them, the
+ * latest {@code updated} timestamp among the exported issues, the files it wrote and the keys of the issues in them.
+ * <p>
+ * File layout: magic, version, jql, fields, output (path, format, gzip, rows per file), max updated (epoch millis),
+ * output files, issue keys.
+ */
+@Getter
+@AllArgsConstructor
+public class SearchCheckpoint {
+    private static final int MAGIC = 0x4a514c43; // "JQLC"
+    private static final int VERSION = 1;
+
+    private final String jql;
+    private final List<String> fields;
+    /**
+     * How the files were written.
+     */
+    private final Output output;
+    private final long maxUpdated;
+    private final List<File> files;
+    private final Set<String> keys;
+
+    /**
+     * @return the checkpoint saved in the file or {@code null} if there is none yet
+     */
+    public static SearchCheckpoint readIfExists(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(String.format("%s is not a search checkpoint", file));
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("Unsupported search checkpoint version %s in %s", version, file));
+            }
+
+            String jql = in.readUTF();
+            List<String> fields = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                fields.add(in.readUTF());
+            }
+            Output output = Output.builder()
+                    .path(in.readUTF())
+                    .format(Output.Format.from(in.readUTF()))
+                    .gzip(in.readBoolean())
+                    .rowsPerFile(in.readLong())
+                    .build();
+            long maxUpdated = in.readLong();
+            List<File> files = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                files.add(new File(in.readUTF()));
+            }
+            int keyCount = in.readInt();
+            Set<String> keys = new HashSet<>(keyCount * 4 / 3 + 1);
+            for (int i = 0; i < keyCount; i++) {
+                keys.add(in.readUTF());
+            }
+
+            return new SearchCheckpoint(jql, fields, output, maxUpdated, files, keys);
+        }
+    }
+
+    /**
+     * Writes to a temporary file first and then replaces the checkpoint, so a failed run leaves the previous one intact.
+     */
+    public void write(File file) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeUTF(jql);
+            out.writeInt(fields.size());
+            for (String field : fields) {
+                out.writeUTF(field);
+            }
+            out.writeUTF(output.getPath());
+            out.writeUTF(output.getFormat().toString());
+            out.writeBoolean(output.isGzip());
+            out.writeLong(output.getRowsPerFile());
+            out.writeLong(maxUpdated);
+            out.writeInt(files.size());
+            for (File outputFile : files) {
+                out.writeUTF(outputFile.getPath());
+            }
+            out.writeInt(keys.size());
+            for (String key : keys) {
+                out.writeUTF(key);
+            }
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return whether the checkpoint was saved by an export of the same query and fields, written the same way, whose
+     * files are still there
+     */
+    public boolean canContinue(String jql, List<String> fields, Output output) {
+        return this.jql.equals(jql)
+                && this.fields.equals(fields)
+                && sameOutput(output)
+                && files.stream().allMatch(File::isFile);
+    }
+
+    private boolean sameOutput(Output other) {
+        return output.getPath().equals(other.getPath())
+                && output.getFormat() == other.getFormat()
+                && output.isGzip() == other.isGzip()
+                && output.getRowsPerFile() == other.getRowsPerFile();
+    }
+}
@@ -0,0 +1,210 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.workflow;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.Utils;
+import ro.albertlr.jira.search.JqlSearch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+import static java.lang.String.format;
+
+/**
+ * Transitions many issues at once: the transitions of an issue are done one after the other, in a single task, while
+ * up to {@code parallelism} issues are transitioned at the same time. The issues are given by keys (loaded with a few
+ * searches) or by a JQL query (streamed page by page), and the progress is logged with an estimate of the time left.
+ */
+@Slf4j
+@Builder
+public class BulkTransition {
+    public static final int DEFAULT_PARALLELISM = 8;
+    private static final long PROGRESS_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    private final Jira jira;
+    @Builder.Default
+    private final int parallelism = DEFAULT_PARALLELISM;
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    @Getter
+    @ToString
+    public static class Summary {
+        private final int issues;
+        private final int transitions;
+        private final int failed;
+        private final Duration took;
+
+        private Summary(int issues, int transitions, int failed, Duration took) {
+            this.issues = issues;
+            this.transitions = transitions;
+            this.failed = failed;
+            this.took = took;
+        }
+    }
+
+    /**
+     * The issues with the given keys, or matching the query when there is one.
+     */
+    public static Iterable<Issue> issues(Jira jira, String issueKeys, String jql) {
+        if (jql != null) {
+            return JqlSearch.builder()
+                    .jira(jira)
+                    .jql(jql)
+                    .fields(Collections.emptySet())
+                    .build();
+        }
+        List<String> keys = new ArrayList<>();
+        Utils.split(issueKeys).forEach(keys::add);
+        Map<String, Issue> loaded = jira.loadIssues(keys, Collections.emptySet());
+        List<Issue> issues = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Issue issue = loaded.get(key);
+            if (issue == null) {
+                log.error("Could not load {}, it will not be transitioned", key);
+            } else {
+                issues.add(issue);
+            }
+        }
+        return issues;
+    }
+
+    /**
+     * Stops transitioning the issues not started yet; the ones being transitioned are finished.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * @param transitions transitions an issue, returning the number of transitions done
+     */
+    public Summary run(Iterable<Issue> issues, ToIntFunction<Issue> transitions) {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                parallelism,
+                new ThreadFactoryBuilder().setNameFormat("transition-%d").setDaemon(true).build()
+        );
+        // keeps a long query from queueing all of its issues ahead of the transitions
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        Progress progress = new Progress(expected(issues));
+        try {
+            for (Issue issue : issues) {
+                if (cancelled.get()) {
+                    log.info("Cancelled, not transitioning the remaining issues");
+                    break;
+                }
+                inFlight.acquireUninterruptibly();
+                progress.submitted.incrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        progress.transitions.addAndGet(transitions.applyAsInt(issue));
+                    } catch (RuntimeException e) {
+                        progress.failed.incrementAndGet();
+                        log.error("Could not transition {}", issue.getKey(), e);
+                    } finally {
+                        progress.done.incrementAndGet();
+                        inFlight.release();
+                        progress.log();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.info("Waiting for {} issues to be transitioned", progress.submitted.get() - progress.done.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+            }
+        }
+
+        Summary summary = new Summary(progress.done.get(), progress.transitions.get(), progress.failed.get(),
+                Duration.ofMillis(progress.stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+        log.info("Transitioned {} issues with {} transitions ({} failed) in {}",
+                summary.issues, summary.transitions, summary.failed, summary.took);
+        return summary;
+    }
+
+    /**
+     * @return how many issues there are to transition, -1 if not known
+     */
+    private int expected(Iterable<Issue> issues) {
+        if (issues instanceof Collection) {
+            return ((Collection<Issue>) issues).size();
+        }
+        if (issues instanceof JqlSearch) {
+            try {
+                return jira.search(((JqlSearch) issues).getJql(), 0, 0, Collections.emptySet()).claim().getTotal();
+            } catch (RuntimeException e) {
+                log.debug("Could not count the issues to transition: {}", e.getMessage());
+            }
+        }
+        return -1;
+    }
+
+    private static class Progress {
+        private final int expected;
+        private final Stopwatch stopwatch = Stopwatch.createStarted();
+        private final AtomicInteger submitted = new AtomicInteger();
+        private final AtomicInteger done = new AtomicInteger();
+        private final AtomicInteger transitions = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong loggedAt = new AtomicLong();
+
+        private Progress(int expected) {
+            this.expected = expected;
+        }
+
+        private void log() {
+            long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+            long last = loggedAt.get();
+            if (elapsed - last < PROGRESS_INTERVAL_MILLIS || !loggedAt.compareAndSet(last, elapsed)) {
+                return;
+            }
+            int doneCount = done.get();
+            int total = Math.max(expected, submitted.get());
+            long eta = doneCount == 0 ? 0 : elapsed * (total - doneCount) / doneCount;
+            log.info("Transitioned {}/{} issues ({} failed), ETA {}",
+                    doneCount, total, failed.get(), format("%d:%02d", eta / 60_000, eta / 1000 % 60));
+        }
+    }
+}
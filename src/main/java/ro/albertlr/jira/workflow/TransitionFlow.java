@@ -0,0 +1,118 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.workflow;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import lombok.ToString;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A transition flow of the configuration (e.g. {@code Open | Unblocked -> E2E Definition}) compiled, once, into a
+ * lookup table: the names of its transitions (interned) with the step of the flow they belong to and their priority,
+ * the order they are written in. Matching the transitions of an issue against the flow is then a single pass over
+ * them with a hashed lookup each, instead of comparing them to every name of the flow.
+ */
+@ToString(of = "steps")
+public class TransitionFlow {
+    public static final TransitionFlow EMPTY = new TransitionFlow(ImmutableList.of());
+
+    private static final Splitter CHOICES = Splitter.on('|').omitEmptyStrings().trimResults();
+
+    private final List<List<String>> steps;
+    /**
+     * The priority of each transition of the flow; the lower the sooner it is taken.
+     */
+    private final Map<String, Integer> priorities;
+    private final int lastStep;
+    private final Map<String, Integer> stepOf;
+
+    private TransitionFlow(List<List<String>> steps) {
+        this.steps = steps;
+        Map<String, Integer> priorities = new HashMap<>();
+        Map<String, Integer> stepOf = new HashMap<>();
+        for (int step = 0; step < steps.size(); step++) {
+            for (String name : steps.get(step)) {
+                priorities.putIfAbsent(name, priorities.size());
+                stepOf.put(name, step);
+            }
+        }
+        this.priorities = ImmutableMap.copyOf(priorities);
+        this.stepOf = ImmutableMap.copyOf(stepOf);
+        this.lastStep = steps.size() - 1;
+    }
+
+    /**
+     * @param steps the steps of the flow, each with its alternative transitions separated by {@code |}
+     */
+    public static TransitionFlow compile(Iterable<String> steps) {
+        ImmutableList.Builder<List<String>> compiled = ImmutableList.builder();
+        for (String step : steps) {
+            ImmutableList.Builder<String> choices = ImmutableList.builder();
+            for (String choice : CHOICES.split(step)) {
+                choices.add(choice.intern());
+            }
+            compiled.add(choices.build());
+        }
+        List<List<String>> built = compiled.build();
+        return built.isEmpty() ? EMPTY : new TransitionFlow(built);
+    }
+
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    /**
+     * @return whether the transition is part of the flow
+     */
+    public boolean contains(String transitionName) {
+        return priorities.containsKey(transitionName);
+    }
+
+    /**
+     * @return whether the transition ends the flow
+     */
+    public boolean isLast(String transitionName) {
+        Integer step = stepOf.get(transitionName);
+        return step != null && step == lastStep;
+    }
+
+    /**
+     * @param name the name of a transition
+     * @return the available transition of the flow to take first, {@code null} if none of them is part of the flow
+     */
+    public <T> T choose(Iterable<T> available, Function<T, String> name) {
+        T chosen = null;
+        int chosenPriority = Integer.MAX_VALUE;
+        for (T transition : available) {
+            Integer priority = priorities.get(name.apply(transition));
+            if (priority != null && priority < chosenPriority) {
+                chosen = transition;
+                chosenPriority = priority;
+            }
+        }
+        return chosen;
+    }
+}
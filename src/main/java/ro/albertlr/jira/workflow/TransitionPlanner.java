@@ -0,0 +1,168 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.workflow;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.google.common.collect.ImmutableSet;
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import ro.albertlr.jira.Jira;
+import ro.albertlr.jira.workflow.WorkflowGraph.Edge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static java.lang.String.format;
+
+/**
+ * Takes an issue through a transition flow (e.g. {@code Open -> E2E Definition -> E2E Definition Blocked}) with as few
+ * requests as possible: when the {@link WorkflowGraph} knows a path from the status of the issue to one of the last
+ * transitions of the flow, the shortest one is taken without asking the server for the transitions of the issue between
+ * the hops. Only when a transition is refused (the cached workflow is out of date) are the transitions of the issue
+ * loaded again, learned and the rest of the path planned again.
+ * <p>
+ * While the graph does not know such a path, the issue is taken through the flow as before, one transition at a time,
+ * the transitions of each status it goes through being learned on the way.
+ */
+@Slf4j
+public class TransitionPlanner {
+    /**
+     * Guards against flows going round in circles.
+     */
+    private static final int MAX_HOPS = 20;
+    private static final Set<String> STATUS_FIELD = ImmutableSet.of("status");
+
+    private final Jira jira;
+    private final WorkflowGraph graph;
+
+    public TransitionPlanner(Jira jira) {
+        this.jira = jira;
+        this.graph = jira.workflows();
+    }
+
+    /**
+     * @return the number of transitions taken
+     */
+    public int run(Issue issue, TransitionFlow flow) {
+        if (flow.isEmpty()) {
+            return 0;
+        }
+        Predicate<Edge> allowed = edge -> flow.contains(edge.getName());
+        Predicate<Edge> target = edge -> flow.isLast(edge.getName());
+
+        String workflow = WorkflowGraph.workflowOf(issue.getProject().getKey(), issue.getIssueType().getName());
+        String status = issue.getStatus().getName();
+        int hops = 0;
+        while (hops < MAX_HOPS) {
+            if (graph.statusesReachedBy(workflow, target).contains(status)) {
+                log.info("{} - {} is already {}", issue.getKey(), issue.getSummary(), status);
+                return hops;
+            }
+
+            List<Edge> path = graph.shortestPath(workflow, status, allowed, target);
+            if (path != null) {
+                log.debug("Planned {} for {} from {}", path, issue.getKey(), status);
+                boolean refused = false;
+                for (Edge edge : path) {
+                    if (!transition(issue, edge)) {
+                        graph.forget(workflow, status);
+                        status = currentStatus(issue);
+                        refused = true;
+                        break;
+                    }
+                    status = edge.getTo();
+                    hops++;
+                }
+                if (!refused) {
+                    return hops;
+                }
+                continue;
+            }
+
+            // the path is not known yet: take the first transition of the flow the issue exposes, learning them
+            Edge next = flow.choose(learn(issue, workflow, status), Edge::getName);
+            if (next == null) {
+                log.info("No more transition phases for {} - {}", issue.getKey(), issue.getSummary());
+                return hops;
+            }
+            if (!transition(issue, next)) {
+                return hops;
+            }
+            status = next.getTo();
+            hops++;
+            if (target.test(next)) {
+                return hops;
+            }
+        }
+        log.warn("Stopped transitioning {} after {} transitions", issue.getKey(), hops);
+        return hops;
+    }
+
+    /**
+     * @return whether the transition was taken
+     */
+    private boolean transition(Issue issue, Edge edge) {
+        log.info("Transition {} - {} to {} {}", issue.getKey(), issue.getSummary(), edge.getId(), edge.getName());
+        try {
+            jira.transitionIssue(issue, edge.getId()).claim();
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Transition {} of {} was refused: {}", edge.getName(), issue.getKey(), e.getMessage());
+            return false;
+        }
+    }
+
+    private String currentStatus(Issue issue) {
+        Issue current = jira.loadIssues(Collections.singleton(issue.getKey()), STATUS_FIELD).get(issue.getKey());
+        if (current == null) {
+            throw new IllegalStateException(format("Could not load the status of %s", issue.getKey()));
+        }
+        return current.getStatus().getName();
+    }
+
+    /**
+     * Loads the transitions the issue exposes in its status, with the status each of them leads to (which the REST
+     * client does not tell), and records them in the graph.
+     */
+    private List<Edge> learn(Issue issue, String workflow, String status) {
+        JSONObject response = jira.getJson(format("rest/api/2/issue/%s/transitions", issue.getKey()));
+        List<Edge> edges = new ArrayList<>();
+        try {
+            JSONArray transitions = response.getJSONArray("transitions");
+            for (int i = 0; i < transitions.length(); i++) {
+                JSONObject transition = transitions.getJSONObject(i);
+                edges.add(new Edge(
+                        transition.getInt("id"),
+                        transition.getString("name"),
+                        transition.getJSONObject("to").getString("name")
+                ));
+            }
+        } catch (JSONException e) {
+            throw new IllegalStateException(format("Unexpected transitions of %s", issue.getKey()), e);
+        }
+        graph.learn(workflow, status, edges);
+        return edges;
+    }
+}
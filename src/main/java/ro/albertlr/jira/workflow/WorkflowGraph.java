@@ -0,0 +1,282 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.workflow;
+
+import com.google.common.collect.ImmutableList;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static java.lang.String.format;
+
+/**
+ * The workflows of the issues as learned from the server: for each workflow (a project and issue type) the
+ * transitions each status exposes and the status each of them leads to. The graph is learned a status at a time, from
+ * the transitions of the issues the actions work on, and kept in a file so that the following runs can plan the
+ * transitions of an issue without asking the server for them; the transitions of a status older than the time to
+ * live are learned again.
+ * <p>
+ * File layout: magic, version, then the workflows, each with its statuses, the time their transitions were learned
+ * and the transitions.
+ */
+@Slf4j
+public class WorkflowGraph {
+    private static final int MAGIC = 0x4a574647; // "JWFG"
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final long ttlMillis;
+
+    /**
+     * The transitions of the statuses, by status, by workflow.
+     */
+    private final Map<String, Map<String, Transitions>> workflows = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+    private volatile boolean changed;
+
+    /**
+     * A transition of a workflow.
+     */
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    public static class Edge {
+        private final int id;
+        private final String name;
+        /**
+         * The status the transition leads to.
+         */
+        private final String to;
+    }
+
+    @AllArgsConstructor
+    private static class Transitions {
+        private final long learnedAt;
+        private final List<Edge> edges;
+    }
+
+    public WorkflowGraph(File file, long ttlMillis) {
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return the key of the workflow of the issues of a type in a project
+     */
+    public static String workflowOf(String projectKey, String issueTypeName) {
+        return projectKey + '|' + issueTypeName;
+    }
+
+    /**
+     * Records the transitions a status exposes, replacing what was known about it.
+     */
+    public void learn(String workflow, String status, Collection<Edge> edges) {
+        ensureLoaded();
+        statusesOf(workflow).put(status, new Transitions(System.currentTimeMillis(), ImmutableList.copyOf(edges)));
+        changed = true;
+    }
+
+    /**
+     * Drops what is known about the transitions of a status, e.g. after one of them was refused by the server.
+     */
+    public void forget(String workflow, String status) {
+        ensureLoaded();
+        if (statusesOf(workflow).remove(status) != null) {
+            changed = true;
+        }
+    }
+
+    /**
+     * @return the transitions of the status, {@code null} if they are not known (or too old)
+     */
+    public List<Edge> transitionsOf(String workflow, String status) {
+        ensureLoaded();
+        Transitions transitions = statusesOf(workflow).get(status);
+        if (transitions == null || System.currentTimeMillis() - transitions.learnedAt > ttlMillis) {
+            return null;
+        }
+        return transitions.edges;
+    }
+
+    /**
+     * @return the statuses one of the transitions leads to, as far as they are known
+     */
+    public Set<String> statusesReachedBy(String workflow, Predicate<Edge> transitions) {
+        ensureLoaded();
+        Set<String> reached = new HashSet<>();
+        for (String status : statusesOf(workflow).keySet()) {
+            for (Edge edge : safe(transitionsOf(workflow, status))) {
+                if (transitions.test(edge)) {
+                    reached.add(edge.to);
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Breadth first search of the shortest known path from the status that ends with one of the target transitions.
+     *
+     * @param allowed the transitions the path may go through
+     * @param target  the transitions the path may end with
+     * @return the transitions to take, {@code null} if no such path is known
+     */
+    public List<Edge> shortestPath(String workflow, String from, Predicate<Edge> allowed, Predicate<Edge> target) {
+        ensureLoaded();
+        // how each visited status was reached: the transition and the status it was taken from
+        Map<String, Edge> reachedBy = new HashMap<>();
+        Map<String, String> previous = new HashMap<>();
+        Queue<String> queue = new ArrayDeque<>();
+        previous.put(from, null);
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            String status = queue.remove();
+            List<Edge> edges = safe(transitionsOf(workflow, status));
+            for (Edge edge : edges) {
+                if (target.test(edge)) {
+                    LinkedList<Edge> path = new LinkedList<>();
+                    path.add(edge);
+                    for (String at = status; previous.get(at) != null; at = previous.get(at)) {
+                        path.addFirst(reachedBy.get(at));
+                    }
+                    return path;
+                }
+            }
+            for (Edge edge : edges) {
+                if (allowed.test(edge) && !previous.containsKey(edge.to)) {
+                    previous.put(edge.to, status);
+                    reachedBy.put(edge.to, edge);
+                    queue.add(edge.to);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    if (file.isFile()) {
+                        try {
+                            read();
+                        } catch (IOException e) {
+                            log.warn("Could not read the workflow cache {}, starting with an empty one: {}", file, e.getMessage());
+                            workflows.clear();
+                        }
+                    }
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the graph if anything was learned since it was read.
+     */
+    public synchronized void save() throws IOException {
+        if (!changed) {
+            return;
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(workflows.size());
+            for (Map.Entry<String, Map<String, Transitions>> workflow : workflows.entrySet()) {
+                out.writeUTF(workflow.getKey());
+                out.writeInt(workflow.getValue().size());
+                for (Map.Entry<String, Transitions> status : workflow.getValue().entrySet()) {
+                    out.writeUTF(status.getKey());
+                    out.writeLong(status.getValue().learnedAt);
+                    out.writeInt(status.getValue().edges.size());
+                    for (Edge edge : status.getValue().edges) {
+                        out.writeInt(edge.id);
+                        out.writeUTF(edge.name);
+                        out.writeUTF(edge.to);
+                    }
+                }
+            }
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        changed = false;
+        log.debug("Saved the workflow cache to {}", file);
+    }
+
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(format("%s is not a workflow cache", file));
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(format("Unsupported workflow cache version %s in %s", version, file));
+            }
+
+            for (int count = in.readInt(); count > 0; count--) {
+                Map<String, Transitions> statuses = statusesOf(in.readUTF());
+                for (int statusCount = in.readInt(); statusCount > 0; statusCount--) {
+                    String status = in.readUTF();
+                    long learnedAt = in.readLong();
+                    ImmutableList.Builder<Edge> edges = ImmutableList.builder();
+                    for (int edgeCount = in.readInt(); edgeCount > 0; edgeCount--) {
+                        edges.add(new Edge(in.readInt(), in.readUTF(), in.readUTF()));
+                    }
+                    statuses.put(status, new Transitions(learnedAt, edges.build()));
+                }
+            }
+        }
+        log.debug("Read the workflow cache {}: {} workflows", file, workflows.size());
+    }
+
+    private Map<String, Transitions> statusesOf(String workflow) {
+        return workflows.computeIfAbsent(workflow, key -> new ConcurrentHashMap<>());
+    }
+
+    private static List<Edge> safe(List<Edge> edges) {
+        return edges == null ? Collections.emptyList() : edges;
+    }
+}
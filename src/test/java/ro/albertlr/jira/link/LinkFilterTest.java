@@ -0,0 +1,64 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.link;
+
+import com.atlassian.jira.rest.client.api.domain.IssueLinkType.Direction;
+import org.junit.Test;
+
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LinkFilterTest {
+    private final RawLink link = new RawLink("10001", "JCLDALL-1", "Covers", "is covered by", "covers",
+            Direction.INBOUND, "JVCLD-2", "E2E", "Done", "An end to end test");
+
+    @Test
+    public void matchesComparisons() {
+        Predicate<RawLink> filter = LinkFilter.compile("type ~ cover and direction = in and project in (JCLDALL, JVCLD)");
+
+        assertTrue(filter.test(link));
+        assertFalse(LinkFilter.compile("status != Done").test(link));
+        assertTrue(LinkFilter.compile("not (issuetype = Bug or status = 'In Progress')").test(link));
+    }
+
+    @Test
+    public void loneExclamationMarkIsRejected() {
+        assertInvalid("status = Done!");
+        assertInvalid("status = Do!ne");
+        assertInvalid("status ! Done");
+    }
+
+    @Test
+    public void unterminatedQuoteIsRejected() {
+        assertInvalid("status = 'Done");
+    }
+
+    private static void assertInvalid(String expression) {
+        try {
+            LinkFilter.compile(expression);
+            fail("Expected " + expression + " to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // the filter is not valid
+        }
+    }
+}
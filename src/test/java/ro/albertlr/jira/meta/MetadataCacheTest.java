@@ -0,0 +1,118 @@
+/*-
+ * #%L
+ * jira-cli
+ *  
+ * Copyright (C) 2019 - 2020 László-Róbert, Albert (robert@albertlr.ro)
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ro.albertlr.jira.meta;
+
+import com.atlassian.jira.rest.client.api.JiraRestClient;
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.atlassian.jira.rest.client.api.UserRestClient;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class MetadataCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger userLoads = new AtomicInteger();
+    private RuntimeException userFailure;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), ".jira-metadata");
+    }
+
+    @Test
+    public void unknownUserIsCachedAsInactive() throws IOException {
+        userFailure = new RestClientException(new IllegalStateException("Not Found"), 404);
+        MetadataCache cache = cache();
+
+        assertFalse(cache.isActive("nobody"));
+        assertFalse(cache.isActive("nobody"));
+        assertEquals(1, userLoads.get());
+
+        cache.save();
+        assertFalse(cache().isActive("nobody"));
+        assertEquals(1, userLoads.get());
+    }
+
+    @Test
+    public void transientFailureIsNotRemembered() throws IOException {
+        userFailure = new RestClientException(new IllegalStateException("Service Unavailable"), 503);
+        MetadataCache cache = cache();
+
+        assertFailsToLoad(cache, "jdoe");
+        assertFailsToLoad(cache, "jdoe");
+        assertEquals(2, userLoads.get());
+
+        cache.save();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void timeoutIsNotRemembered() {
+        userFailure = new RestClientException(new RuntimeException("Read timed out"));
+        MetadataCache cache = cache();
+
+        assertFailsToLoad(cache, "jdoe");
+        assertFailsToLoad(cache, "jdoe");
+        assertEquals(2, userLoads.get());
+    }
+
+    private void assertFailsToLoad(MetadataCache cache, String userName) {
+        try {
+            cache.isActive(userName);
+            fail("The failure to load " + userName + " should be thrown");
+        } catch (RestClientException e) {
+            assertEquals(userFailure, e);
+        }
+    }
+
+    private MetadataCache cache() {
+        UserRestClient userClient = (UserRestClient) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{UserRestClient.class},
+                (proxy, method, args) -> {
+                    userLoads.incrementAndGet();
+                    throw userFailure;
+                });
+        JiraRestClient restClient = (JiraRestClient) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{JiraRestClient.class},
+                (proxy, method, args) -> {
+                    if ("getUserClient".equals(method.getName())) {
+                        return userClient;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new MetadataCache(() -> restClient, file, TimeUnit.DAYS.toMillis(1));
+    }
+}